@@ -0,0 +1,83 @@
+package com.afs.restapi.benchmark;
+
+import com.afs.restapi.RestapiApplication;
+import com.afs.restapi.entity.Company;
+import com.afs.restapi.entity.Employee;
+import com.afs.restapi.repository.CompanyJpaRepository;
+import com.afs.restapi.service.BatchInsertService;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+
+final class BenchmarkApplication {
+    private static final String[] GENDERS = {"Male", "Female"};
+    // -Dbenchmark.datasource.url=jdbc:mysql://... runs against MySQL with the credentials from application.yml
+    private static final String DATASOURCE_URL = System.getProperty("benchmark.datasource.url");
+
+    private BenchmarkApplication() {
+    }
+
+    static ConfigurableApplicationContext start(String name, String cacheType) {
+        return new SpringApplicationBuilder(RestapiApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(arguments(name, "--spring.cache.type=" + cacheType));
+    }
+
+    static ConfigurableApplicationContext startWebServer(String name, String... extraArguments) {
+        return new SpringApplicationBuilder(RestapiApplication.class)
+                .web(WebApplicationType.SERVLET)
+                .run(arguments(name, extraArguments));
+    }
+
+    static boolean usesMySql() {
+        return DATASOURCE_URL != null;
+    }
+
+    private static String[] arguments(String name, String... extraArguments) {
+        List<String> arguments = new ArrayList<>();
+        if (usesMySql()) {
+            arguments.add("--spring.datasource.url=" + DATASOURCE_URL);
+        } else {
+            arguments.addAll(List.of(
+                    "--spring.datasource.url=jdbc:h2:mem:" + name + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE",
+                    "--spring.datasource.username=sa",
+                    "--spring.datasource.password=",
+                    "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect"));
+        }
+        arguments.addAll(List.of(
+                "--spring.jpa.show-sql=false",
+                "--server.port=0",
+                "--logging.level.root=WARN"));
+        arguments.addAll(List.of(extraArguments));
+        return arguments.toArray(new String[0]);
+    }
+
+    static long[] seedCompanies(ConfigurableApplicationContext context, int companyCount) {
+        BatchInsertService batchInsertService = context.getBean(BatchInsertService.class);
+        List<Company> companies = new ArrayList<>(companyCount);
+        for (int i = 0; i < companyCount; i++) {
+            companies.add(new Company(null, "company-" + i));
+        }
+        batchInsertService.createCompanies(companies);
+        return context.getBean(CompanyJpaRepository.class).findAll().stream()
+                .mapToLong(Company::getId)
+                .toArray();
+    }
+
+    static void seedEmployees(ConfigurableApplicationContext context, long[] companyIds, int employeesPerCompany) {
+        BatchInsertService batchInsertService = context.getBean(BatchInsertService.class);
+        List<Employee> employees = new ArrayList<>(companyIds.length * employeesPerCompany);
+        for (long companyId : companyIds) {
+            for (int i = 0; i < employeesPerCompany; i++) {
+                Employee employee = new Employee(null, "employee-" + companyId + "-" + i, 20 + i % 40,
+                        GENDERS[i % GENDERS.length], 5000 + (i * 37) % 20000);
+                employee.setCompanyId(companyId);
+                employees.add(employee);
+            }
+        }
+        batchInsertService.createEmployees(employees);
+    }
+}
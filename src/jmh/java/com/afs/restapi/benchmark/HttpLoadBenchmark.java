@@ -0,0 +1,83 @@
+package com.afs.restapi.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drives the company employee listing over HTTP with far more client threads than
+ * the connection pool has connections, to compare DIRECT and BOUNDED execution.
+ * In BOUNDED mode the rejected counter reports how many requests were shed with 503.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Threads(128)
+@Fork(1)
+public class HttpLoadBenchmark {
+    private static final int COMPANY_COUNT = 50;
+    private static final int EMPLOYEES_PER_COMPANY = 200;
+    private static final int POOL_SIZE = 10;
+
+    @Param({"direct", "bounded"})
+    public String executionMode;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient httpClient;
+    private URI[] uris;
+    private final AtomicLong sequence = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.startWebServer("http-" + executionMode,
+                "--spring.cache.type=none",
+                "--spring.datasource.hikari.maximum-pool-size=" + POOL_SIZE,
+                "--app.execution.mode=" + executionMode);
+        long[] companyIds = BenchmarkApplication.seedCompanies(context, COMPANY_COUNT);
+        BenchmarkApplication.seedEmployees(context, companyIds, EMPLOYEES_PER_COMPANY);
+        String port = context.getEnvironment().getProperty("local.server.port");
+        uris = new URI[companyIds.length];
+        for (int i = 0; i < companyIds.length; i++) {
+            uris[i] = URI.create("http://localhost:" + port + "/companies/" + companyIds[i] + "/employees");
+        }
+        httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Outcomes {
+        public long succeeded;
+        public long rejected;
+    }
+
+    @Benchmark
+    public void getEmployeesByCompanyId(Outcomes outcomes, Blackhole blackhole) throws IOException, InterruptedException {
+        URI uri = uris[(int) (sequence.incrementAndGet() % uris.length)];
+        HttpResponse<byte[]> response = httpClient.send(HttpRequest.newBuilder(uri).GET().build(),
+                HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() == 200) {
+            outcomes.succeeded++;
+        } else {
+            outcomes.rejected++;
+        }
+        blackhole.consume(response.body());
+    }
+}
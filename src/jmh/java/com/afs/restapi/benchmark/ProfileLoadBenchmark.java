@@ -0,0 +1,110 @@
+package com.afs.restapi.benchmark;
+
+import com.afs.restapi.entity.Employee;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load test of the HTTP API with the stock configuration against the "tuned" profile
+ * (fixed Hikari pool, JDBC batching, insert/update ordering, query plan cache sizing).
+ * <p>
+ * On H2 this measures the pool and Hibernate settings only. Passing
+ * {@code -PbenchmarkDatasourceUrl=jdbc:mysql://...} (an empty schema) runs against MySQL and
+ * activates "prod" instead of "tuned", which adds the Connector/J statement cache and
+ * {@code rewriteBatchedStatements}; the batch insert throughput is where that shows most.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Threads(16)
+@Fork(1)
+public class ProfileLoadBenchmark {
+    private static final int COMPANY_COUNT = 50;
+    private static final int EMPLOYEES_PER_COMPANY = 200;
+    private static final int BATCH_SIZE = 500;
+    private static final int PAGE_SIZE = 50;
+
+    @Param({"default", "tuned"})
+    public String profile;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient httpClient;
+    private String baseUrl;
+    private int employeeCount;
+    private byte[] batchRequest;
+    private byte[] updateRequest;
+
+    @Setup(Level.Trial)
+    public void setUp() throws JsonProcessingException {
+        String activeProfile = "default".equals(profile) ? "default" : BenchmarkApplication.usesMySql() ? "prod" : profile;
+        context = BenchmarkApplication.startWebServer("profile-" + profile,
+                "--spring.cache.type=none",
+                "--spring.profiles.active=" + activeProfile);
+        long[] companyIds = BenchmarkApplication.seedCompanies(context, COMPANY_COUNT);
+        BenchmarkApplication.seedEmployees(context, companyIds, EMPLOYEES_PER_COMPANY);
+        employeeCount = COMPANY_COUNT * EMPLOYEES_PER_COMPANY;
+        baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+        httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        List<Employee> employees = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            employees.add(new Employee(null, "load-" + i, 20 + i % 40, i % 2 == 0 ? "Male" : "Female", 5000 + i));
+        }
+        batchRequest = objectMapper.writeValueAsBytes(employees);
+        updateRequest = objectMapper.writeValueAsBytes(new Employee(null, null, 30, null, 20000));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int batchInsertEmployees() throws IOException, InterruptedException {
+        return send(HttpRequest.newBuilder(URI.create(baseUrl + "/employees/batch"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(batchRequest))
+                .build());
+    }
+
+    @Benchmark
+    public int getEmployeesPage() throws IOException, InterruptedException {
+        int pageNumber = 1 + ThreadLocalRandom.current().nextInt(employeeCount / PAGE_SIZE);
+        return send(HttpRequest.newBuilder(URI.create(baseUrl + "/employees?pageNumber=" + pageNumber
+                        + "&pageSize=" + PAGE_SIZE))
+                .GET()
+                .build());
+    }
+
+    @Benchmark
+    public int updateEmployee() throws IOException, InterruptedException {
+        // seeded employees take the first ids of an empty schema
+        long id = 1 + ThreadLocalRandom.current().nextInt(employeeCount);
+        return send(HttpRequest.newBuilder(URI.create(baseUrl + "/employees/" + id))
+                .header("Content-Type", "application/json")
+                .PUT(HttpRequest.BodyPublishers.ofByteArray(updateRequest))
+                .build());
+    }
+
+    private int send(HttpRequest request) throws IOException, InterruptedException {
+        return httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+}
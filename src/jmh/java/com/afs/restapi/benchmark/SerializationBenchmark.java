@@ -0,0 +1,83 @@
+package com.afs.restapi.benchmark;
+
+import com.afs.restapi.entity.Company;
+import com.afs.restapi.entity.Employee;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+    private static final int EMPLOYEES_PER_COMPANY = 10;
+
+    @Param({"100", "1000"})
+    public int size;
+
+    @Param({"json", "smile"})
+    public String format;
+
+    @Param({"none", "gzip"})
+    public String compression;
+
+    private ObjectMapper objectMapper;
+    private List<Employee> employees;
+    private List<Company> companies;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        objectMapper = "smile".equals(format) ? new ObjectMapper(new SmileFactory()) : new ObjectMapper();
+        employees = new ArrayList<>(size);
+        companies = new ArrayList<>(size);
+        for (long companyId = 1; companyId <= size; companyId++) {
+            Company company = new Company(companyId, "company-" + companyId);
+            List<Employee> companyEmployees = new ArrayList<>(EMPLOYEES_PER_COMPANY);
+            for (int i = 0; i < EMPLOYEES_PER_COMPANY; i++) {
+                Employee employee = new Employee(companyId * EMPLOYEES_PER_COMPANY + i, "employee-" + i, 20 + i,
+                        i % 2 == 0 ? "Male" : "Female", 5000 + i * 100);
+                employee.setCompanyId(companyId);
+                companyEmployees.add(employee);
+            }
+            company.setEmployees(companyEmployees);
+            companies.add(company);
+            employees.add(companyEmployees.get(0));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void reportWireSize() throws IOException {
+        // the bytes a client receives for each payload, next to the serialization time JMH reports
+        System.out.printf("%nwire size (%s, %s, size=%d): employees=%d bytes, companies=%d bytes%n",
+                format, compression, size, write(employees).length, write(companies).length);
+    }
+
+    @Benchmark
+    public byte[] serializeEmployees() throws IOException {
+        return write(employees);
+    }
+
+    @Benchmark
+    public byte[] serializeCompanies() throws IOException {
+        return write(companies);
+    }
+
+    private byte[] write(Object payload) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream output = "gzip".equals(compression) ? new GZIPOutputStream(bytes) : bytes) {
+            objectMapper.writeValue(output, payload);
+        }
+        return bytes.toByteArray();
+    }
+}
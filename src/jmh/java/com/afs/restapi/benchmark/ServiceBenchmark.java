@@ -0,0 +1,78 @@
+package com.afs.restapi.benchmark;
+
+import com.afs.restapi.dto.EmployeeResponse;
+import com.afs.restapi.entity.Employee;
+import com.afs.restapi.repository.EmployeeJpaRepository;
+import com.afs.restapi.service.CompanyService;
+import com.afs.restapi.service.EmployeeService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ServiceBenchmark {
+    private static final int COMPANY_COUNT = 200;
+    private static final int EMPLOYEES_PER_COMPANY = 50;
+    private static final int PAGE_SIZE = 20;
+
+    @Param({"caffeine", "none"})
+    public String cacheType;
+
+    private ConfigurableApplicationContext context;
+    private EmployeeService employeeService;
+    private CompanyService companyService;
+    private long[] employeeIds;
+    private long[] companyIds;
+    private int pageCount;
+    private int sequence;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start("service-" + cacheType, cacheType);
+        companyIds = BenchmarkApplication.seedCompanies(context, COMPANY_COUNT);
+        BenchmarkApplication.seedEmployees(context, companyIds, EMPLOYEES_PER_COMPANY);
+        employeeIds = context.getBean(EmployeeJpaRepository.class).findAll().stream()
+                .mapToLong(Employee::getId)
+                .toArray();
+        pageCount = employeeIds.length / PAGE_SIZE;
+        employeeService = context.getBean(EmployeeService.class);
+        companyService = context.getBean(CompanyService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Employee employeeFindById() {
+        return employeeService.findById(employeeIds[next(employeeIds.length)]);
+    }
+
+    @Benchmark
+    public List<EmployeeResponse> employeeFindByPage() {
+        return employeeService.findByPage(next(pageCount) + 1, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<Employee> employeeFindAllByGender() {
+        return employeeService.findAllByGender(next(2) == 0 ? "Male" : "Female");
+    }
+
+    @Benchmark
+    public List<EmployeeResponse> companyFindEmployeesByCompanyId() {
+        return companyService.findEmployeesByCompanyId(companyIds[next(companyIds.length)]);
+    }
+
+    private int next(int bound) {
+        sequence = (sequence + 1) % Integer.MAX_VALUE;
+        return sequence % bound;
+    }
+}
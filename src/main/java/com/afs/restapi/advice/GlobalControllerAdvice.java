@@ -1,18 +1,98 @@
 package com.afs.restapi.advice;
 
+import com.afs.restapi.exception.ChangesCompactedException;
 import com.afs.restapi.exception.CompanyNotFoundException;
 import com.afs.restapi.exception.EmployeeNotFoundException;
+import com.afs.restapi.exception.InvalidCursorException;
+import com.afs.restapi.exception.InvalidPageException;
+import com.afs.restapi.exception.InvalidSortException;
+import com.afs.restapi.exception.PreconditionFailedException;
+import com.afs.restapi.exception.SubmissionNotFoundException;
+import com.afs.restapi.exception.UpdateQueueClosedException;
+import com.afs.restapi.exception.UpdateQueueFullException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
+import java.util.Map;
+
 @RestControllerAdvice
 public class GlobalControllerAdvice {
+    private static final String RETRY_AFTER_SECONDS = "1";
+
+    // errors whose message never varies are serialized once instead of on every miss
+    private final Map<Class<? extends Exception>, byte[]> cachedBodies;
+
+    public GlobalControllerAdvice(ObjectMapper objectMapper) throws JsonProcessingException {
+        this.cachedBodies = Map.of(
+                EmployeeNotFoundException.class, serialize(objectMapper, HttpStatus.NOT_FOUND, new EmployeeNotFoundException()),
+                CompanyNotFoundException.class, serialize(objectMapper, HttpStatus.NOT_FOUND, new CompanyNotFoundException()),
+                InvalidCursorException.class, serialize(objectMapper, HttpStatus.BAD_REQUEST, new InvalidCursorException()),
+                InvalidPageException.class, serialize(objectMapper, HttpStatus.BAD_REQUEST, new InvalidPageException()),
+                SubmissionNotFoundException.class, serialize(objectMapper, HttpStatus.NOT_FOUND, new SubmissionNotFoundException()),
+                PreconditionFailedException.class,
+                serialize(objectMapper, HttpStatus.PRECONDITION_FAILED, new PreconditionFailedException()),
+                UpdateQueueFullException.class,
+                serialize(objectMapper, HttpStatus.SERVICE_UNAVAILABLE, new UpdateQueueFullException()),
+                UpdateQueueClosedException.class,
+                serialize(objectMapper, HttpStatus.SERVICE_UNAVAILABLE, new UpdateQueueClosedException()),
+                ChangesCompactedException.class, serialize(objectMapper, HttpStatus.GONE, new ChangesCompactedException()));
+    }
+
+    @ExceptionHandler({EmployeeNotFoundException.class, CompanyNotFoundException.class, SubmissionNotFoundException.class})
+    public ResponseEntity<byte[]> handleNotFoundException(Exception exception) {
+        return cachedErrorResponse(HttpStatus.NOT_FOUND, exception);
+    }
+
+    @ExceptionHandler({InvalidCursorException.class, InvalidPageException.class})
+    public ResponseEntity<byte[]> handleInvalidPagingException(Exception exception) {
+        return cachedErrorResponse(HttpStatus.BAD_REQUEST, exception);
+    }
+
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    @ExceptionHandler(InvalidSortException.class)
+    public ErrorResponse handleBadRequestException(Exception exception) {
+        return new ErrorResponse(HttpStatus.BAD_REQUEST.value(), exception.getMessage());
+    }
+
+    @ExceptionHandler(PreconditionFailedException.class)
+    public ResponseEntity<byte[]> handlePreconditionFailedException(Exception exception) {
+        return cachedErrorResponse(HttpStatus.PRECONDITION_FAILED, exception);
+    }
+
+    @ExceptionHandler(ChangesCompactedException.class)
+    public ResponseEntity<byte[]> handleChangesCompactedException(Exception exception) {
+        return cachedErrorResponse(HttpStatus.GONE, exception);
+    }
+
+    // no Retry-After: this instance is stopping, so a retry belongs on another one
+    @ExceptionHandler(UpdateQueueClosedException.class)
+    public ResponseEntity<byte[]> handleUpdateQueueClosedException(Exception exception) {
+        return cachedErrorResponse(HttpStatus.SERVICE_UNAVAILABLE, exception);
+    }
+
+    @ExceptionHandler(UpdateQueueFullException.class)
+    public ResponseEntity<byte[]> handleUpdateQueueFullException(Exception exception) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(cachedBodies.get(exception.getClass()));
+    }
+
+    private ResponseEntity<byte[]> cachedErrorResponse(HttpStatus status, Exception exception) {
+        return ResponseEntity.status(status)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(cachedBodies.get(exception.getClass()));
+    }
 
-    @ResponseStatus(HttpStatus.NOT_FOUND)
-    @ExceptionHandler({EmployeeNotFoundException.class, CompanyNotFoundException.class})
-    public ErrorResponse handleNotFoundException(Exception exception) {
-        return new ErrorResponse(HttpStatus.NOT_FOUND.value(), exception.getMessage());
+    private static byte[] serialize(ObjectMapper objectMapper, HttpStatus status, Exception exception)
+            throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(new ErrorResponse(status.value(), exception.getMessage()));
     }
 }
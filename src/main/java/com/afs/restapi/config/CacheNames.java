@@ -0,0 +1,12 @@
+package com.afs.restapi.config;
+
+public final class CacheNames {
+    public static final String EMPLOYEES = "employees";
+    public static final String COMPANIES = "companies";
+    // ids that were recently looked up and not found; cleared whenever rows are created
+    public static final String MISSING_EMPLOYEES = "missingEmployees";
+    public static final String MISSING_COMPANIES = "missingCompanies";
+
+    private CacheNames() {
+    }
+}
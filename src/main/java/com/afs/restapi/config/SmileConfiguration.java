@@ -0,0 +1,21 @@
+package com.afs.restapi.config;
+
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+/**
+ * Serves the same payloads as binary Smile when a client sends {@code Accept: application/x-jackson-smile}.
+ * JSON stays the default because this converter keeps its place after the JSON one.
+ */
+@Configuration
+public class SmileConfiguration {
+
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        // share the application's Jackson customizations instead of Spring MVC's bare default Smile mapper
+        return new MappingJackson2SmileHttpMessageConverter(builder.factory(new SmileFactory()).build());
+    }
+}
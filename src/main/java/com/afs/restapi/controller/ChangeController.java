@@ -0,0 +1,36 @@
+package com.afs.restapi.controller;
+
+import com.afs.restapi.dto.ChangeFeed;
+import com.afs.restapi.service.ChangeEventService;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.time.Duration;
+
+@RequestMapping("changes")
+@RestController
+public class ChangeController {
+    private static final int MAX_LIMIT = 1000;
+    private static final int MAX_WAIT_SECONDS = 60;
+
+    private final ChangeEventService changeEventService;
+
+    public ChangeController(ChangeEventService changeEventService) {
+        this.changeEventService = changeEventService;
+    }
+
+    /**
+     * Long poll: answers at once when there are events after {@code since}, otherwise waits up to
+     * {@code waitSeconds} for one. Pass the returned {@code next} as {@code since} on the next call.
+     */
+    @GetMapping
+    public DeferredResult<ChangeFeed> getChanges(@RequestParam long since,
+                                                 @RequestParam(defaultValue = "500") int limit,
+                                                 @RequestParam(defaultValue = "30") int waitSeconds) {
+        return changeEventService.poll(since, Math.max(1, Math.min(limit, MAX_LIMIT)),
+                Duration.ofSeconds(Math.max(0, Math.min(waitSeconds, MAX_WAIT_SECONDS))));
+    }
+}
@@ -1,42 +1,132 @@
 package com.afs.restapi.controller;
 
+import com.afs.restapi.dto.BatchResult;
+import com.afs.restapi.dto.CompanyResponse;
+import com.afs.restapi.dto.CompanyStatistics;
+import com.afs.restapi.dto.CompanySummary;
+import com.afs.restapi.dto.CompanyTotals;
+import com.afs.restapi.dto.CursorPage;
+import com.afs.restapi.dto.EmployeeResponse;
+import com.afs.restapi.dto.TotalsVerification;
 import com.afs.restapi.entity.Company;
+import com.afs.restapi.service.BatchInsertService;
+import com.afs.restapi.service.CompanyEmployeesService;
 import com.afs.restapi.service.CompanyService;
-import com.afs.restapi.entity.Employee;
+import com.afs.restapi.service.CompanyTotalsService;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
 import java.util.List;
 
 @RequestMapping("companies")
 @RestController
 public class CompanyController {
 
+    private static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
     private final CompanyService companyService;
+    private final BatchInsertService batchInsertService;
+    private final CompanyEmployeesService companyEmployeesService;
+    private final CompanyTotalsService companyTotalsService;
 
-    public CompanyController(CompanyService companyService) {
+    public CompanyController(CompanyService companyService, BatchInsertService batchInsertService,
+                             CompanyEmployeesService companyEmployeesService, CompanyTotalsService companyTotalsService) {
         this.companyService = companyService;
+        this.batchInsertService = batchInsertService;
+        this.companyEmployeesService = companyEmployeesService;
+        this.companyTotalsService = companyTotalsService;
     }
 
     @GetMapping
-    public List<Company> getAllCompanies() {
+    public List<CompanyResponse> getAllCompanies() {
         return companyService.findAll();
     }
 
+    @GetMapping(params = "includeEmployees=false")
+    public List<CompanySummary> getAllCompanySummaries() {
+        return companyService.findAllSummaries();
+    }
+
     @GetMapping(params = {"pageNumber", "pageSize"})
-    public List<Company> getCompaniesByPage(@RequestParam Integer pageNumber, @RequestParam Integer pageSize) {
-        return companyService.findByPage(pageNumber, pageSize);
+    public ResponseEntity<List<CompanyResponse>> getCompaniesByPage(@RequestParam Integer pageNumber,
+                                                                    @RequestParam Integer pageSize) {
+        Pages.check(pageNumber, pageSize);
+        List<CompanyResponse> companies = companyService.findByPage(pageNumber, pageSize);
+        // a matching If-None-Match turns this into a 304 before the body is written
+        return ResponseEntity.ok().eTag(ETags.ofCompanies(companies)).body(companies);
+    }
+
+    @GetMapping(params = {"pageNumber", "pageSize", "includeEmployees=false"})
+    public List<CompanySummary> getCompanySummariesByPage(@RequestParam Integer pageNumber, @RequestParam Integer pageSize) {
+        Pages.check(pageNumber, pageSize);
+        return companyService.findSummariesByPage(pageNumber, pageSize);
+    }
+
+    @GetMapping(params = {"pageSize", "!pageNumber"})
+    public ResponseEntity<CursorPage<CompanyResponse>> getCompaniesByCursor(@RequestParam(required = false) String cursor,
+                                                                            @RequestParam Integer pageSize) {
+        Pages.checkSize(pageSize);
+        CursorPage<CompanyResponse> page = companyService.findByCursor(cursor, pageSize);
+        return ResponseEntity.ok().eTag(ETags.ofCompanies(page.getContent())).body(page);
+    }
+
+    @GetMapping("/stats")
+    public List<CompanyStatistics> getAllCompanyStatistics() {
+        return companyService.findAllStatistics();
+    }
+
+    @GetMapping("/{id}/stats")
+    public CompanyStatistics getCompanyStatistics(@PathVariable Long id) {
+        return companyService.findStatisticsById(id);
+    }
+
+    @GetMapping("/totals")
+    public List<CompanyTotals> getAllCompanyTotals() {
+        return companyTotalsService.findAll();
+    }
+
+    @GetMapping("/{id}/totals")
+    public CompanyTotals getCompanyTotals(@PathVariable Long id) {
+        return companyTotalsService.findByCompanyId(id);
+    }
+
+    // admin: recount every company from the employee table, e.g. after writes that bypassed the services
+    @PostMapping("/totals/rebuild")
+    public TotalsVerification rebuildCompanyTotals() {
+        return companyTotalsService.rebuild();
+    }
+
+    @GetMapping("/totals/verify")
+    public TotalsVerification verifyCompanyTotals() {
+        return companyTotalsService.verify();
     }
 
     @GetMapping("/{id}")
-    public Company getCompanyById(@PathVariable Long id) {
-        return companyService.findById(id);
+    public ResponseEntity<Company> getCompanyById(@PathVariable Long id,
+                                                  @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        if (ifNoneMatch != null) {
+            // answer revalidation from the version columns alone, without loading or serializing the entity
+            String eTag = ETags.ofCompany(companyService.findVersionById(id).getVersion(),
+                    companyService.findEmployeeVersionsByCompanyId(id));
+            if (ETags.matches(ifNoneMatch, eTag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+            }
+        }
+        Company company = companyService.findById(id);
+        return ResponseEntity.ok().eTag(ETags.ofCompany(company)).body(company);
     }
 
     @PutMapping("/{id}")
     @ResponseStatus(HttpStatus.NO_CONTENT)
-    public void updateCompany(@PathVariable Long id, @RequestBody Company company) {
-        companyService.update(id, company);
+    public void updateCompany(@PathVariable Long id, @RequestBody Company company,
+                              @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        companyService.update(id, company, ETags.parseIfMatch(ifMatch));
     }
 
     @DeleteMapping("/{id}")
@@ -51,9 +141,24 @@ public class CompanyController {
         return companyService.create(company);
     }
 
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public BatchResult createCompanies(@RequestBody List<Company> companies) {
+        return batchInsertService.createCompanies(companies);
+    }
+
+    @PostMapping(value = "/batch", consumes = APPLICATION_NDJSON_VALUE)
+    public BatchResult createCompaniesFromNdjson(HttpServletRequest request) throws IOException {
+        return batchInsertService.createCompanies(request.getInputStream());
+    }
+
     @GetMapping("/{id}/employees")
-    public List<Employee> getEmployeesByCompanyId(@PathVariable Long id) {
+    public List<EmployeeResponse> getEmployeesByCompanyId(@PathVariable Long id) {
         return companyService.findEmployeesByCompanyId(id);
     }
 
+    @GetMapping(value = "/employees", params = "ids", produces = MediaType.APPLICATION_JSON_VALUE)
+    public StreamingResponseBody getEmployeesByCompanyIds(@RequestParam List<Long> ids) {
+        return outputStream -> companyEmployeesService.writeEmployeesByCompanyIds(ids, outputStream);
+    }
+
 }
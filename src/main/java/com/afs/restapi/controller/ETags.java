@@ -0,0 +1,146 @@
+package com.afs.restapi.controller;
+
+import com.afs.restapi.dto.CompanyResponse;
+import com.afs.restapi.dto.EmployeeResponse;
+import com.afs.restapi.dto.ResourceVersion;
+import com.afs.restapi.entity.Company;
+import com.afs.restapi.entity.Employee;
+import com.afs.restapi.exception.PreconditionFailedException;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+final class ETags {
+    private static final String ANY = "*";
+    private static final String WEAK_PREFIX = "W/";
+    private static final char VERSION_SEPARATOR = '-';
+    private static final int DIGEST_BYTES = 16;
+
+    private ETags() {
+    }
+
+    /**
+     * Strong validator of a single row, e.g. {@code "3"} for an employee at version 3.
+     */
+    static String of(long version) {
+        return quote(Long.toString(version));
+    }
+
+    /**
+     * Strong validator of a company including its employees. The company's own version leads so that
+     * the tag can still be sent back in If-Match.
+     */
+    static String ofCompany(Company company) {
+        List<Employee> employees = company.getEmployees() == null ? List.of() : company.getEmployees();
+        return ofCompany(company.getVersion(), employees.stream()
+                .map(employee -> new ResourceVersion(employee.getId(), employee.getVersion(), employee.getUpdatedAt()))
+                .collect(Collectors.toList()));
+    }
+
+    static String ofCompany(long version, List<ResourceVersion> employees) {
+        Digest digest = new Digest();
+        employees.stream()
+                .sorted(Comparator.comparing(ResourceVersion::getId))
+                .forEach(employee -> digest.add(employee.getId(), employee.getVersion()));
+        return quote(version + String.valueOf(VERSION_SEPARATOR) + digest.toHex());
+    }
+
+    static String ofEmployees(List<EmployeeResponse> employees) {
+        Digest digest = new Digest();
+        employees.forEach(employee -> digest.add(employee.getId(), employee.getVersion()));
+        return quote(digest.toHex());
+    }
+
+    static String ofCompanies(List<CompanyResponse> companies) {
+        Digest digest = new Digest();
+        for (CompanyResponse company : companies) {
+            digest.add(company.getId(), company.getVersion());
+            // the employee count keeps one company's employees from reading as the next company
+            digest.add(company.getEmployees().size());
+            company.getEmployees().forEach(employee -> digest.add(employee.getId(), employee.getVersion()));
+        }
+        return quote(digest.toHex());
+    }
+
+    /**
+     * Whether an If-None-Match header matches the current tag. If-None-Match uses weak comparison,
+     * so a {@code W/} prefix sent back by an intermediary still matches.
+     */
+    static boolean matches(String ifNoneMatch, String eTag) {
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith(WEAK_PREFIX)) {
+                tag = tag.substring(WEAK_PREFIX.length());
+            }
+            if (ANY.equals(tag) || eTag.equals(tag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Extracts the expected version from an If-Match header, or null when the
+     * header is absent or matches any version.
+     */
+    static Long parseIfMatch(String ifMatch) {
+        if (ifMatch == null || ANY.equals(ifMatch.trim())) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        // If-Match uses strong comparison, so weak validators never match
+        if (tag.startsWith(WEAK_PREFIX) || tag.length() < 2 || !tag.startsWith("\"") || !tag.endsWith("\"")) {
+            throw new PreconditionFailedException();
+        }
+        String value = tag.substring(1, tag.length() - 1);
+        int separator = value.indexOf(VERSION_SEPARATOR);
+        try {
+            return Long.parseLong(separator < 0 ? value : value.substring(0, separator));
+        } catch (NumberFormatException exception) {
+            throw new PreconditionFailedException();
+        }
+    }
+
+    private static String quote(String value) {
+        return "\"" + value + "\"";
+    }
+
+    private static final class Digest {
+        private final MessageDigest messageDigest;
+        private final ByteBuffer buffer = ByteBuffer.allocate(2 * Long.BYTES);
+
+        private Digest() {
+            try {
+                messageDigest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException exception) {
+                throw new IllegalStateException(exception);
+            }
+        }
+
+        private void add(Long id, long version) {
+            buffer.clear();
+            buffer.putLong(id == null ? 0 : id).putLong(version);
+            messageDigest.update(buffer.array());
+        }
+
+        private void add(long count) {
+            buffer.clear();
+            buffer.putLong(count);
+            messageDigest.update(buffer.array(), 0, Long.BYTES);
+        }
+
+        private String toHex() {
+            byte[] hash = messageDigest.digest();
+            StringBuilder hex = new StringBuilder(2 * DIGEST_BYTES);
+            for (int i = 0; i < DIGEST_BYTES; i++) {
+                hex.append(Character.forDigit((hash[i] >> 4) & 0xf, 16))
+                        .append(Character.forDigit(hash[i] & 0xf, 16));
+            }
+            return hex.toString();
+        }
+    }
+}
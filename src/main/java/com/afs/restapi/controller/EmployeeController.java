@@ -1,36 +1,101 @@
 package com.afs.restapi.controller;
 
+import com.afs.restapi.dto.BatchResult;
+import com.afs.restapi.dto.CursorPage;
+import com.afs.restapi.dto.DeleteResult;
+import com.afs.restapi.dto.EmployeeFilter;
+import com.afs.restapi.dto.EmployeeResponse;
+import com.afs.restapi.dto.ResourceVersion;
+import com.afs.restapi.dto.UpdateSubmission;
 import com.afs.restapi.entity.Employee;
+import com.afs.restapi.exception.InvalidSortException;
+import com.afs.restapi.service.BatchInsertService;
+import com.afs.restapi.service.EmployeeExportService;
 import com.afs.restapi.service.EmployeeService;
+import com.afs.restapi.service.EmployeeUpdateQueue;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.net.URI;
 import java.util.List;
 
 @RestController
 @RequestMapping("/employees")
 public class EmployeeController {
 
+    private static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+    private static final String PREFER = "Prefer";
+    private static final String RESPOND_ASYNC = "respond-async";
+
     private final EmployeeService employeeService;
+    private final EmployeeExportService employeeExportService;
+    private final BatchInsertService batchInsertService;
+    private final EmployeeUpdateQueue employeeUpdateQueue;
 
-    public EmployeeController(EmployeeService employeeService) {
+    public EmployeeController(EmployeeService employeeService, EmployeeExportService employeeExportService,
+                              BatchInsertService batchInsertService, EmployeeUpdateQueue employeeUpdateQueue) {
         this.employeeService = employeeService;
+        this.employeeExportService = employeeExportService;
+        this.batchInsertService = batchInsertService;
+        this.employeeUpdateQueue = employeeUpdateQueue;
     }
 
     @GetMapping
-    public List<Employee> getAllEmployees() {
-        return employeeService.findAll();
+    public List<EmployeeResponse> getAllEmployees(EmployeeFilter filter, Sort sort) {
+        return employeeService.findAll(filter, sort);
+    }
+
+    @GetMapping(value = "/export", produces = APPLICATION_NDJSON_VALUE)
+    public StreamingResponseBody exportEmployees() {
+        return employeeExportService::exportAll;
     }
 
     @GetMapping("/{id}")
-    public Employee getEmployeeById(@PathVariable Long id) {
-        return employeeService.findById(id);
+    public ResponseEntity<Employee> getEmployeeById(@PathVariable Long id,
+                                                    @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        if (ifNoneMatch != null) {
+            // answer revalidation from the version columns alone, without loading or serializing the entity
+            ResourceVersion current = employeeService.findVersionById(id);
+            String eTag = ETags.of(current.getVersion());
+            if (ETags.matches(ifNoneMatch, eTag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                        .eTag(eTag)
+                        .lastModified(current.getUpdatedAt())
+                        .build();
+            }
+        }
+        Employee employee = employeeService.findById(id);
+        return ResponseEntity.ok()
+                .eTag(ETags.of(employee.getVersion()))
+                .lastModified(employee.getUpdatedAt())
+                .body(employee);
     }
 
     @PutMapping("/{id}")
-    @ResponseStatus(HttpStatus.NO_CONTENT)
-    public void updateEmployee(@PathVariable Long id, @RequestBody Employee employee) {
-        employeeService.update(id, employee);
+    public ResponseEntity<UpdateSubmission> updateEmployee(@PathVariable Long id, @RequestBody Employee employee,
+                                                           @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                                           @RequestHeader(value = PREFER, required = false) String prefer) {
+        // queued updates are merged per id, which leaves no single version to check If-Match against
+        if (prefersAsync(prefer) && ifMatch == null) {
+            UpdateSubmission submission = employeeUpdateQueue.submit(id, employee);
+            return ResponseEntity.accepted()
+                    .location(URI.create("/employees/updates/" + submission.getId()))
+                    .body(submission);
+        }
+        employeeService.update(id, employee, ETags.parseIfMatch(ifMatch));
+        return ResponseEntity.noContent().build();
+    }
+
+    @GetMapping("/updates/{submissionId}")
+    public UpdateSubmission getUpdateSubmission(@PathVariable String submissionId) {
+        return employeeUpdateQueue.findSubmission(submissionId);
     }
 
     @DeleteMapping("/{id}")
@@ -39,9 +104,9 @@ public class EmployeeController {
         employeeService.delete(id);
     }
 
-    @GetMapping(params = "gender")
-    public List<Employee> getEmployeesByGender(@RequestParam String gender) {
-        return employeeService.findAllByGender(gender);
+    @DeleteMapping(params = "ids")
+    public DeleteResult deleteEmployees(@RequestParam List<Long> ids) {
+        return employeeService.deleteAll(ids);
     }
 
     @PostMapping
@@ -50,9 +115,57 @@ public class EmployeeController {
         return employeeService.create(employee);
     }
 
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public BatchResult createEmployees(@RequestBody List<Employee> employees) {
+        return batchInsertService.createEmployees(employees);
+    }
+
+    @PostMapping(value = "/batch", consumes = APPLICATION_NDJSON_VALUE)
+    public BatchResult createEmployeesFromNdjson(HttpServletRequest request) throws IOException {
+        return batchInsertService.createEmployees(request.getInputStream());
+    }
+
     @GetMapping(params = {"pageNumber", "pageSize"})
-    public List<Employee> findEmployeesByPage(@RequestParam Integer pageNumber, @RequestParam Integer pageSize) {
-        return employeeService.findByPage(pageNumber, pageSize);
+    public ResponseEntity<List<EmployeeResponse>> findEmployeesByPage(@RequestParam Integer pageNumber,
+                                                                      @RequestParam Integer pageSize,
+                                                                      EmployeeFilter filter, Sort sort) {
+        Pages.check(pageNumber, pageSize);
+        List<EmployeeResponse> employees = employeeService.findByPage(pageNumber, pageSize, filter, sort);
+        // a matching If-None-Match turns this into a 304 before the body is written
+        return ResponseEntity.ok().eTag(ETags.ofEmployees(employees)).body(employees);
+    }
+
+    @GetMapping(params = {"pageSize", "!pageNumber"})
+    public ResponseEntity<CursorPage<EmployeeResponse>> findEmployeesByCursor(@RequestParam(required = false) String cursor,
+                                                                              @RequestParam Integer pageSize,
+                                                                              EmployeeFilter filter, Sort sort) {
+        Pages.checkSize(pageSize);
+        // the cursor is the last id seen, so pages can only follow id order
+        sort.stream()
+                .findFirst()
+                .ifPresent(order -> {
+                    throw new InvalidSortException(order.getProperty());
+                });
+        CursorPage<EmployeeResponse> page = employeeService.findByCursor(cursor, pageSize, filter);
+        return ResponseEntity.ok().eTag(ETags.ofEmployees(page.getContent())).body(page);
+    }
+
+    /**
+     * Whether a {@code Prefer} header, e.g. {@code "respond-async, wait=10"}, asks for
+     * {@code respond-async} among its comma-separated preferences.
+     */
+    private static boolean prefersAsync(String prefer) {
+        if (prefer == null) {
+            return false;
+        }
+        for (String preference : prefer.split(",")) {
+            int parameters = preference.indexOf(';');
+            String token = parameters < 0 ? preference : preference.substring(0, parameters);
+            if (RESPOND_ASYNC.equalsIgnoreCase(token.trim())) {
+                return true;
+            }
+        }
+        return false;
     }
 
 }
@@ -0,0 +1,24 @@
+package com.afs.restapi.controller;
+
+import com.afs.restapi.exception.InvalidPageException;
+
+final class Pages {
+    private Pages() {
+    }
+
+    /**
+     * Rejects page parameters that {@code PageRequest.of} would otherwise fail on with a 500.
+     */
+    static void check(int pageNumber, int pageSize) {
+        if (pageNumber < 1) {
+            throw new InvalidPageException();
+        }
+        checkSize(pageSize);
+    }
+
+    static void checkSize(int pageSize) {
+        if (pageSize < 1) {
+            throw new InvalidPageException();
+        }
+    }
+}
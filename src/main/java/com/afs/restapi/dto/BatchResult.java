@@ -0,0 +1,43 @@
+package com.afs.restapi.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class BatchResult {
+    private int created;
+    private final List<BatchFailure> failures = new ArrayList<>();
+
+    public int getCreated() {
+        return created;
+    }
+
+    public List<BatchFailure> getFailures() {
+        return failures;
+    }
+
+    public void addCreated(int count) {
+        created += count;
+    }
+
+    public void addFailure(int index, String message) {
+        failures.add(new BatchFailure(index, message));
+    }
+
+    public static class BatchFailure {
+        private final int index;
+        private final String message;
+
+        public BatchFailure(int index, String message) {
+            this.index = index;
+            this.message = message;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+    }
+}
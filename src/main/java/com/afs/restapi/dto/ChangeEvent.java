@@ -0,0 +1,48 @@
+package com.afs.restapi.dto;
+
+import java.time.Instant;
+
+public class ChangeEvent {
+    public enum EntityType {
+        EMPLOYEE, COMPANY
+    }
+
+    public enum Operation {
+        // BATCH_CREATED carries no entity id: rows imported in one batch are found by paging past the last known id
+        CREATED, UPDATED, DELETED, BATCH_CREATED
+    }
+
+    private final long sequence;
+    private final EntityType entityType;
+    private final Long entityId;
+    private final Operation operation;
+    private final Instant occurredAt;
+
+    public ChangeEvent(long sequence, EntityType entityType, Long entityId, Operation operation, Instant occurredAt) {
+        this.sequence = sequence;
+        this.entityType = entityType;
+        this.entityId = entityId;
+        this.operation = operation;
+        this.occurredAt = occurredAt;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public EntityType getEntityType() {
+        return entityType;
+    }
+
+    public Long getEntityId() {
+        return entityId;
+    }
+
+    public Operation getOperation() {
+        return operation;
+    }
+
+    public Instant getOccurredAt() {
+        return occurredAt;
+    }
+}
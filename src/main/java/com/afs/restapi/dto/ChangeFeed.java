@@ -0,0 +1,28 @@
+package com.afs.restapi.dto;
+
+import java.util.List;
+
+public class ChangeFeed {
+    private final List<ChangeEvent> events;
+    private final long next;
+
+    public ChangeFeed(List<ChangeEvent> events, long next) {
+        this.events = events;
+        this.next = next;
+    }
+
+    public static ChangeFeed empty(long since) {
+        return new ChangeFeed(List.of(), since);
+    }
+
+    public List<ChangeEvent> getEvents() {
+        return events;
+    }
+
+    /**
+     * The {@code since} value for the next request.
+     */
+    public long getNext() {
+        return next;
+    }
+}
@@ -0,0 +1,33 @@
+package com.afs.restapi.dto;
+
+import java.util.List;
+
+public class CompanyResponse {
+    private final Long id;
+    private final String name;
+    private final long version;
+    private final List<EmployeeResponse> employees;
+
+    public CompanyResponse(Long id, String name, long version, List<EmployeeResponse> employees) {
+        this.id = id;
+        this.name = name;
+        this.version = version;
+        this.employees = employees;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public List<EmployeeResponse> getEmployees() {
+        return employees;
+    }
+}
@@ -0,0 +1,54 @@
+package com.afs.restapi.dto;
+
+public class CompanyStatistics {
+    private final Long companyId;
+    private final long headcount;
+    private final Double averageSalary;
+    private final Integer minSalary;
+    private final Integer maxSalary;
+    private final long maleCount;
+    private final long femaleCount;
+
+    public CompanyStatistics(Long companyId, Long headcount, Double averageSalary, Integer minSalary, Integer maxSalary,
+                             Long maleCount, Long femaleCount) {
+        this.companyId = companyId;
+        this.headcount = headcount == null ? 0 : headcount;
+        this.averageSalary = averageSalary;
+        this.minSalary = minSalary;
+        this.maxSalary = maxSalary;
+        this.maleCount = maleCount == null ? 0 : maleCount;
+        this.femaleCount = femaleCount == null ? 0 : femaleCount;
+    }
+
+    public Long getCompanyId() {
+        return companyId;
+    }
+
+    public long getHeadcount() {
+        return headcount;
+    }
+
+    public Double getAverageSalary() {
+        return averageSalary;
+    }
+
+    public Integer getMinSalary() {
+        return minSalary;
+    }
+
+    public Integer getMaxSalary() {
+        return maxSalary;
+    }
+
+    public long getMaleCount() {
+        return maleCount;
+    }
+
+    public long getFemaleCount() {
+        return femaleCount;
+    }
+
+    public long getOtherGenderCount() {
+        return headcount - maleCount - femaleCount;
+    }
+}
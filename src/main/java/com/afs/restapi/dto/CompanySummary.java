@@ -0,0 +1,25 @@
+package com.afs.restapi.dto;
+
+public class CompanySummary {
+    private final Long id;
+    private final String name;
+    private final long version;
+
+    public CompanySummary(Long id, String name, long version) {
+        this.id = id;
+        this.name = name;
+        this.version = version;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+}
@@ -0,0 +1,29 @@
+package com.afs.restapi.dto;
+
+public class CompanyTotals {
+    private final Long companyId;
+    private final long headcount;
+    private final long payroll;
+
+    public CompanyTotals(Long companyId, long headcount, long payroll) {
+        this.companyId = companyId;
+        this.headcount = headcount;
+        this.payroll = payroll;
+    }
+
+    public static CompanyTotals empty(Long companyId) {
+        return new CompanyTotals(companyId, 0, 0);
+    }
+
+    public Long getCompanyId() {
+        return companyId;
+    }
+
+    public long getHeadcount() {
+        return headcount;
+    }
+
+    public long getPayroll() {
+        return payroll;
+    }
+}
@@ -0,0 +1,19 @@
+package com.afs.restapi.dto;
+
+public class DeleteResult {
+    private final int requested;
+    private final int deleted;
+
+    public DeleteResult(int requested, int deleted) {
+        this.requested = requested;
+        this.deleted = deleted;
+    }
+
+    public int getRequested() {
+        return requested;
+    }
+
+    public int getDeleted() {
+        return deleted;
+    }
+}
@@ -0,0 +1,56 @@
+package com.afs.restapi.dto;
+
+import com.afs.restapi.entity.Employee;
+
+public class EmployeeResponse {
+    private final Long id;
+    private final String name;
+    private final Integer age;
+    private final String gender;
+    private final Integer salary;
+    private final Long companyId;
+    private final long version;
+
+    public EmployeeResponse(Long id, String name, Integer age, String gender, Integer salary, Long companyId, long version) {
+        this.id = id;
+        this.name = name;
+        this.age = age;
+        this.gender = gender;
+        this.salary = salary;
+        this.companyId = companyId;
+        this.version = version;
+    }
+
+    public static EmployeeResponse from(Employee employee) {
+        return new EmployeeResponse(employee.getId(), employee.getName(), employee.getAge(), employee.getGender(),
+                employee.getSalary(), employee.getCompanyId(), employee.getVersion());
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Integer getAge() {
+        return age;
+    }
+
+    public String getGender() {
+        return gender;
+    }
+
+    public Integer getSalary() {
+        return salary;
+    }
+
+    public Long getCompanyId() {
+        return companyId;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+}
@@ -0,0 +1,25 @@
+package com.afs.restapi.dto;
+
+public class EmployeeSalary {
+    private final Long id;
+    private final Long companyId;
+    private final Integer salary;
+
+    public EmployeeSalary(Long id, Long companyId, Integer salary) {
+        this.id = id;
+        this.companyId = companyId;
+        this.salary = salary;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getCompanyId() {
+        return companyId;
+    }
+
+    public Integer getSalary() {
+        return salary;
+    }
+}
@@ -0,0 +1,27 @@
+package com.afs.restapi.dto;
+
+import java.time.Instant;
+
+public class ResourceVersion {
+    private final Long id;
+    private final long version;
+    private final Instant updatedAt;
+
+    public ResourceVersion(Long id, long version, Instant updatedAt) {
+        this.id = id;
+        this.version = version;
+        this.updatedAt = updatedAt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+}
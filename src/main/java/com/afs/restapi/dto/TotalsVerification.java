@@ -0,0 +1,37 @@
+package com.afs.restapi.dto;
+
+import java.util.List;
+
+public class TotalsVerification {
+    private final List<Mismatch> mismatches;
+
+    public TotalsVerification(List<Mismatch> mismatches) {
+        this.mismatches = mismatches;
+    }
+
+    public boolean isConsistent() {
+        return mismatches.isEmpty();
+    }
+
+    public List<Mismatch> getMismatches() {
+        return mismatches;
+    }
+
+    public static class Mismatch {
+        private final CompanyTotals expected;
+        private final CompanyTotals actual;
+
+        public Mismatch(CompanyTotals expected, CompanyTotals actual) {
+            this.expected = expected;
+            this.actual = actual;
+        }
+
+        public CompanyTotals getExpected() {
+            return expected;
+        }
+
+        public CompanyTotals getActual() {
+            return actual;
+        }
+    }
+}
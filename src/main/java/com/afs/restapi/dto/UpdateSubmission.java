@@ -0,0 +1,38 @@
+package com.afs.restapi.dto;
+
+public class UpdateSubmission {
+    public enum Status {
+        QUEUED, APPLIED, NOT_FOUND, FAILED
+    }
+
+    private final String id;
+    private final Long employeeId;
+    private volatile Status status = Status.QUEUED;
+    private volatile String message;
+
+    public UpdateSubmission(String id, Long employeeId) {
+        this.id = id;
+        this.employeeId = employeeId;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public Long getEmployeeId() {
+        return employeeId;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void complete(Status status, String message) {
+        this.message = message;
+        this.status = status;
+    }
+}
@@ -1,8 +1,22 @@
 package com.afs.restapi.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.UpdateTimestamp;
+
 import javax.persistence.*;
+import java.time.Instant;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@Table(indexes = {
+        @Index(name = "idx_employee_company_id", columnList = "companyId"),
+        @Index(name = "idx_employee_gender", columnList = "gender"),
+        @Index(name = "idx_employee_name", columnList = "name"),
+        @Index(name = "idx_employee_salary", columnList = "salary")
+})
 public class Employee {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -12,6 +26,13 @@ public class Employee {
     private String gender;
     private Integer salary;
     private Long companyId;
+    @Version
+    @Column(nullable = false, columnDefinition = "bigint default 0 not null")
+    private long version;
+    @JsonIgnore
+    @UpdateTimestamp
+    @Column(nullable = false, columnDefinition = "datetime(6) default current_timestamp(6) not null")
+    private Instant updatedAt;
 
     public Employee() {
     }
@@ -71,4 +92,20 @@ public class Employee {
     public void setCompanyId(Long companyId) {
         this.companyId = companyId;
     }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Instant updatedAt) {
+        this.updatedAt = updatedAt;
+    }
 }
@@ -0,0 +1,11 @@
+package com.afs.restapi.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.GONE)
+public class ChangesCompactedException extends StacklessException {
+    public ChangesCompactedException() {
+        super("changes after this sequence were compacted, resync required");
+    }
+}
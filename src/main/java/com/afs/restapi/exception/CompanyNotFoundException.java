@@ -4,7 +4,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.ResponseStatus;
 
 @ResponseStatus(HttpStatus.NOT_FOUND)
-public class CompanyNotFoundException extends RuntimeException {
+public class CompanyNotFoundException extends StacklessException {
     public CompanyNotFoundException() {
         super("company id not found");
     }
@@ -4,7 +4,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.ResponseStatus;
 
 @ResponseStatus(HttpStatus.NOT_FOUND)
-public class EmployeeNotFoundException extends RuntimeException {
+public class EmployeeNotFoundException extends StacklessException {
     public EmployeeNotFoundException() {
         super("employee id not found");
     }
@@ -0,0 +1,11 @@
+package com.afs.restapi.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class InvalidSortException extends StacklessException {
+    public InvalidSortException(String property) {
+        super("cannot sort by " + property);
+    }
+}
@@ -0,0 +1,11 @@
+package com.afs.restapi.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.PRECONDITION_FAILED)
+public class PreconditionFailedException extends StacklessException {
+    public PreconditionFailedException() {
+        super("resource version does not match");
+    }
+}
@@ -0,0 +1,11 @@
+package com.afs.restapi.exception;
+
+/**
+ * Base for the expected, client-caused errors. They are turned into fixed HTTP responses and never
+ * logged, so capturing a stack trace on every throw (a 404 flood is thousands per second) buys nothing.
+ */
+public abstract class StacklessException extends RuntimeException {
+    protected StacklessException(String message) {
+        super(message, null, false, false);
+    }
+}
@@ -0,0 +1,11 @@
+package com.afs.restapi.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class UpdateQueueClosedException extends StacklessException {
+    public UpdateQueueClosedException() {
+        super("update queue is shutting down");
+    }
+}
@@ -0,0 +1,11 @@
+package com.afs.restapi.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class UpdateQueueFullException extends StacklessException {
+    public UpdateQueueFullException() {
+        super("update queue is full, retry later");
+    }
+}
@@ -0,0 +1,13 @@
+package com.afs.restapi.filter;
+
+public enum ExecutionMode {
+    /**
+     * Every request runs on the servlet container thread that accepted it.
+     */
+    DIRECT,
+    /**
+     * Requests run on the container thread only after acquiring one of a bounded
+     * number of execution slots; overflow waits briefly and is then shed with 503.
+     */
+    BOUNDED
+}
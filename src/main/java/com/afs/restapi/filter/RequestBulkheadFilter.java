@@ -0,0 +1,151 @@
+package com.afs.restapi.filter;
+
+import com.afs.restapi.advice.ErrorResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Admission control for the JPA-backed endpoints. Each request holds a database
+ * connection for most of its life, so running more of them than the pool can serve
+ * only parks container threads; in BOUNDED mode the excess is rejected early instead.
+ */
+@Component
+public class RequestBulkheadFilter extends OncePerRequestFilter {
+    private static final String[] GUARDED_PATHS = {"/employees", "/companies"};
+    private static final String RETRY_AFTER_SECONDS = "1";
+
+    private final ExecutionMode mode;
+    private final Semaphore admissionSlots;
+    private final Semaphore executionSlots;
+    private final long queueTimeoutNanos;
+    private final Counter shedCounter;
+    private final byte[] overloadedBody;
+
+    public RequestBulkheadFilter(@Value("${app.execution.mode:direct}") ExecutionMode mode,
+                                 @Value("${app.execution.max-concurrent-requests:${spring.datasource.hikari.maximum-pool-size:10}}") int maxConcurrentRequests,
+                                 @Value("${app.execution.queue-capacity:50}") int queueCapacity,
+                                 @Value("${app.execution.queue-timeout:500ms}") Duration queueTimeout,
+                                 ObjectMapper objectMapper, MeterRegistry meterRegistry) throws IOException {
+        this.mode = mode;
+        this.admissionSlots = new Semaphore(maxConcurrentRequests + queueCapacity);
+        this.executionSlots = new Semaphore(maxConcurrentRequests, true);
+        this.queueTimeoutNanos = queueTimeout.toNanos();
+        this.shedCounter = Counter.builder("http.server.requests.shed")
+                .description("Requests rejected with 503 by the request bulkhead")
+                .register(meterRegistry);
+        this.overloadedBody = objectMapper.writeValueAsBytes(
+                new ErrorResponse(HttpStatus.SERVICE_UNAVAILABLE.value(), "server is overloaded, retry later"));
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (mode == ExecutionMode.DIRECT) {
+            return true;
+        }
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        for (String guardedPath : GUARDED_PATHS) {
+            if (path.startsWith(guardedPath)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        if (!admissionSlots.tryAcquire()) {
+            reject(response);
+            return;
+        }
+        boolean releasedOnCompletion = false;
+        try {
+            if (!executionSlots.tryAcquire(queueTimeoutNanos, TimeUnit.NANOSECONDS)) {
+                reject(response);
+                return;
+            }
+            try {
+                filterChain.doFilter(request, response);
+                if (request.isAsyncStarted()) {
+                    // a streaming body keeps reading from the database after this thread returns
+                    request.getAsyncContext().addListener(new SlotRelease());
+                    releasedOnCompletion = true;
+                }
+            } finally {
+                if (!releasedOnCompletion) {
+                    executionSlots.release();
+                }
+            }
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            reject(response);
+        } finally {
+            if (!releasedOnCompletion) {
+                admissionSlots.release();
+            }
+        }
+    }
+
+    private void reject(HttpServletResponse response) throws IOException {
+        shedCounter.increment();
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setContentLength(overloadedBody.length);
+        response.getOutputStream().write(overloadedBody);
+    }
+
+    /**
+     * Gives back both slots of an async request once, whichever of complete, error or timeout comes first.
+     */
+    private class SlotRelease implements AsyncListener {
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // listeners are dropped when async processing is restarted
+            event.getAsyncContext().addListener(this);
+        }
+
+        private void release() {
+            if (released.compareAndSet(false, true)) {
+                executionSlots.release();
+                admissionSlots.release();
+            }
+        }
+    }
+}
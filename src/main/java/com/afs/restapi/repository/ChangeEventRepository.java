@@ -0,0 +1,159 @@
+package com.afs.restapi.repository;
+
+import com.afs.restapi.dto.ChangeEvent;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * The transactional outbox behind {@code GET /changes}. Plain JDBC, like the batch inserts: events are
+ * written and read in bulk and never need to be entities.
+ * <p>
+ * Write transactions only insert into {@code change_outbox}, whose auto-increment ids are not in commit
+ * order. {@link #relay} later moves committed rows into {@code change_event} and gives them dense
+ * sequences there.
+ */
+@Repository
+public class ChangeEventRepository {
+    private static final String APPEND_SQL =
+            "insert into change_outbox (entity_type, entity_id, operation, created_at) values (?, ?, ?, ?)";
+    private static final String LOCK_LAST_VALUE_SQL = "select last_value from change_sequence where id = 1 for update";
+    private static final String SELECT_OUTBOX_SQL = "select id, entity_type, entity_id, operation, created_at "
+            + "from change_outbox order by id limit ?";
+    private static final String INSERT_SQL =
+            "insert into change_event (sequence, entity_type, entity_id, operation, created_at) values (?, ?, ?, ?, ?)";
+    private static final String DELETE_OUTBOX_SQL = "delete from change_outbox where id = ?";
+    private static final String ADVANCE_SQL = "update change_sequence set last_value = ? where id = 1";
+    private static final String LAST_VALUE_SQL = "select last_value from change_sequence where id = 1";
+    private static final String COMPACTED_THROUGH_SQL = "select compacted_through from change_compaction where id = 1";
+    private static final String SELECT_AFTER_SQL = "select sequence, entity_type, entity_id, operation, created_at "
+            + "from change_event where sequence > ? order by sequence limit ?";
+    private static final String LAST_BEFORE_SQL = "select max(sequence) from change_event where created_at < ?";
+    private static final String DELETE_RANGE_SQL = "delete from change_event where sequence > ? and sequence <= ?";
+    private static final String MARK_COMPACTED_SQL = "update change_compaction set compacted_through = ? where id = 1";
+
+    private static final RowMapper<ChangeEvent> EVENT_MAPPER = (resultSet, rowNumber) -> new ChangeEvent(
+            resultSet.getLong("sequence"),
+            ChangeEvent.EntityType.valueOf(resultSet.getString("entity_type")),
+            resultSet.getObject("entity_id", Long.class),
+            ChangeEvent.Operation.valueOf(resultSet.getString("operation")),
+            resultSet.getTimestamp("created_at").toInstant());
+    private static final RowMapper<OutboxRow> OUTBOX_MAPPER = (resultSet, rowNumber) -> new OutboxRow(
+            resultSet.getLong("id"),
+            resultSet.getString("entity_type"),
+            resultSet.getObject("entity_id", Long.class),
+            resultSet.getString("operation"),
+            resultSet.getTimestamp("created_at"));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ChangeEventRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Appends one event per entity id, which may be null, inside the transaction that made the change.
+     * Takes no lock that other writers wait for.
+     */
+    public void append(ChangeEvent.EntityType entityType, ChangeEvent.Operation operation, List<Long> entityIds) {
+        Timestamp createdAt = Timestamp.from(Instant.now());
+        jdbcTemplate.batchUpdate(APPEND_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement statement, int index) throws SQLException {
+                statement.setString(1, entityType.name());
+                statement.setObject(2, entityIds.get(index), Types.BIGINT);
+                statement.setString(3, operation.name());
+                statement.setTimestamp(4, createdAt);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return entityIds.size();
+            }
+        });
+    }
+
+    /**
+     * Moves up to {@code limit} committed outbox rows into change_event, numbered after the last sequence,
+     * and returns how many were moved. Must run in its own transaction. The sequence row lock makes
+     * concurrent relays, e.g. on other instances, run one after the other. Each one therefore
+     * continues where the previous one committed.
+     */
+    public int relay(int limit) {
+        long lastValue = jdbcTemplate.queryForObject(LOCK_LAST_VALUE_SQL, Long.class);
+        List<OutboxRow> rows = jdbcTemplate.query(SELECT_OUTBOX_SQL, OUTBOX_MAPPER, limit);
+        if (rows.isEmpty()) {
+            return 0;
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement statement, int index) throws SQLException {
+                OutboxRow row = rows.get(index);
+                statement.setLong(1, lastValue + index + 1);
+                statement.setString(2, row.entityType);
+                statement.setObject(3, row.entityId, Types.BIGINT);
+                statement.setString(4, row.operation);
+                statement.setTimestamp(5, row.createdAt);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return rows.size();
+            }
+        });
+        // by id rather than by range: a lower id that commits meanwhile was not read and stays for the next relay
+        jdbcTemplate.batchUpdate(DELETE_OUTBOX_SQL, rows, rows.size(),
+                (statement, row) -> statement.setLong(1, row.id));
+        jdbcTemplate.update(ADVANCE_SQL, lastValue + rows.size());
+        return rows.size();
+    }
+
+    public List<ChangeEvent> findAfter(long sequence, int limit) {
+        return jdbcTemplate.query(SELECT_AFTER_SQL, EVENT_MAPPER, sequence, limit);
+    }
+
+    public long findLastSequence() {
+        return jdbcTemplate.queryForObject(LAST_VALUE_SQL, Long.class);
+    }
+
+    /**
+     * Every event up to and including this sequence has been deleted.
+     */
+    public long findCompactedThrough() {
+        return jdbcTemplate.queryForObject(COMPACTED_THROUGH_SQL, Long.class);
+    }
+
+    public Long findLastSequenceBefore(Instant createdAt) {
+        return jdbcTemplate.queryForObject(LAST_BEFORE_SQL, Long.class, Timestamp.from(createdAt));
+    }
+
+    public int deleteRange(long afterSequence, long throughSequence) {
+        int deleted = jdbcTemplate.update(DELETE_RANGE_SQL, afterSequence, throughSequence);
+        jdbcTemplate.update(MARK_COMPACTED_SQL, throughSequence);
+        return deleted;
+    }
+
+    private static final class OutboxRow {
+        private final long id;
+        private final String entityType;
+        private final Long entityId;
+        private final String operation;
+        private final Timestamp createdAt;
+
+        private OutboxRow(long id, String entityType, Long entityId, String operation, Timestamp createdAt) {
+            this.id = id;
+            this.entityType = entityType;
+            this.entityId = entityId;
+            this.operation = operation;
+            this.createdAt = createdAt;
+        }
+    }
+}
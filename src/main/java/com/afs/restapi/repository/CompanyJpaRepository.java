@@ -1,9 +1,47 @@
 package com.afs.restapi.repository;
 
+import com.afs.restapi.dto.CompanySummary;
+import com.afs.restapi.dto.ResourceVersion;
 import com.afs.restapi.entity.Company;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+import java.util.Optional;
+
 @Repository
 public interface CompanyJpaRepository extends JpaRepository<Company, Long> {
+    String SELECT_SUMMARY = "select new com.afs.restapi.dto.CompanySummary(c.id, c.name, c.version) from Company c ";
+
+    @Query(SELECT_SUMMARY + "order by c.id")
+    List<CompanySummary> findAllSummaries();
+
+    @Query(SELECT_SUMMARY + "order by c.id")
+    List<CompanySummary> findSummariesBy(Pageable pageable);
+
+    @Query(SELECT_SUMMARY + "where c.id > :lastId order by c.id")
+    Slice<CompanySummary> findSummariesAfter(@Param("lastId") Long lastId, Pageable pageable);
+
+    @Query("select new com.afs.restapi.dto.ResourceVersion(c.id, c.version, c.updatedAt) from Company c "
+            + "where c.id = :id")
+    Optional<ResourceVersion> findVersionById(@Param("id") Long id);
+
+    @Modifying
+    @Query("update Company c set c.name = coalesce(:name, c.name), c.version = c.version + 1, "
+            + "c.updatedAt = current_timestamp where c.id = :id")
+    int updateName(@Param("id") Long id, @Param("name") String name);
+
+    @Modifying
+    @Query("update Company c set c.name = coalesce(:name, c.name), c.version = c.version + 1, "
+            + "c.updatedAt = current_timestamp where c.id = :id and c.version = :version")
+    int updateName(@Param("id") Long id, @Param("version") long version, @Param("name") String name);
+
+    @Modifying
+    @Query("delete from Company c where c.id = :id")
+    int bulkDeleteById(@Param("id") Long id);
 }
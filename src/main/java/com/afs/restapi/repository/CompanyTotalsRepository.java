@@ -0,0 +1,147 @@
+package com.afs.restapi.repository;
+
+import com.afs.restapi.dto.CompanyTotals;
+import com.afs.restapi.dto.EmployeeSalary;
+import com.afs.restapi.dto.TotalsVerification;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Headcount and payroll per company, kept as a few slot rows per company whose sums are the totals.
+ * Writers add deltas to one slot, so concurrent changes to the same company mostly lock different rows.
+ */
+@Repository
+public class CompanyTotalsRepository {
+    private static final String ADD_SQL = "update company_totals set headcount = headcount + ?, payroll = payroll + ? "
+            + "where company_id = ? and slot = ?";
+    private static final String INSERT_SQL =
+            "insert into company_totals (company_id, slot, headcount, payroll) values (?, ?, ?, ?)";
+    private static final String SELECT_ALL_SQL = "select company_id, sum(headcount) headcount, sum(payroll) payroll "
+            + "from company_totals group by company_id having sum(headcount) > 0 order by company_id";
+    private static final String SELECT_ONE_SQL = "select company_id, sum(headcount) headcount, sum(payroll) payroll "
+            + "from company_totals where company_id = ? group by company_id";
+    private static final String DELETE_SQL = "delete from company_totals where company_id = ?";
+    private static final String LOCK_TOTALS_SQL = "select slot from company_totals where company_id = ? for update";
+    private static final String LOCK_EMPLOYEES_BY_COMPANY_SQL = "select id, company_id, salary from employee "
+            + "where company_id = ? order by id for update";
+    private static final String LOCK_EMPLOYEES_SQL = "select id, company_id, salary from employee where id in (%s) "
+            + "order by id for update";
+    private static final String COMPANY_IDS_SQL =
+            "select id from company union select company_id from company_totals order by 1";
+    // one statement, so both sides are read from the same snapshot
+    private static final String MISMATCHES_SQL = "select company_id, sum(expected_headcount) expected_headcount, "
+            + "sum(expected_payroll) expected_payroll, sum(headcount) headcount, sum(payroll) payroll from ("
+            + "select company_id, 1 expected_headcount, coalesce(salary, 0) expected_payroll, 0 headcount, 0 payroll "
+            + "from employee where company_id is not null "
+            + "union all "
+            + "select company_id, 0, 0, headcount, payroll from company_totals) totals "
+            + "group by company_id "
+            + "having sum(expected_headcount) <> sum(headcount) or sum(expected_payroll) <> sum(payroll) "
+            + "order by company_id";
+
+    private static final RowMapper<CompanyTotals> TOTALS_MAPPER = (resultSet, rowNumber) -> new CompanyTotals(
+            resultSet.getLong("company_id"), resultSet.getLong("headcount"), resultSet.getLong("payroll"));
+    private static final RowMapper<EmployeeSalary> SALARY_MAPPER = (resultSet, rowNumber) -> new EmployeeSalary(
+            resultSet.getLong("id"),
+            resultSet.getObject("company_id", Long.class),
+            resultSet.getObject("salary", Integer.class));
+    private static final RowMapper<TotalsVerification.Mismatch> MISMATCH_MAPPER = (resultSet, rowNumber) -> {
+        long companyId = resultSet.getLong("company_id");
+        return new TotalsVerification.Mismatch(
+                new CompanyTotals(companyId, resultSet.getLong("expected_headcount"), resultSet.getLong("expected_payroll")),
+                new CompanyTotals(companyId, resultSet.getLong("headcount"), resultSet.getLong("payroll")));
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public CompanyTotalsRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Adds the deltas to one slot row of the company, creating the row on first use. Must run inside the
+     * transaction that made the change, which holds the row lock until it commits.
+     */
+    public void add(long companyId, int slot, long headcount, long payroll) {
+        if (jdbcTemplate.update(ADD_SQL, headcount, payroll, companyId, slot) > 0) {
+            return;
+        }
+        try {
+            jdbcTemplate.update(INSERT_SQL, companyId, slot, headcount, payroll);
+        } catch (DuplicateKeyException exception) {
+            // another transaction created the row in between; it exists now, so the update matches
+            jdbcTemplate.update(ADD_SQL, headcount, payroll, companyId, slot);
+        }
+    }
+
+    public List<CompanyTotals> findAll() {
+        return jdbcTemplate.query(SELECT_ALL_SQL, TOTALS_MAPPER);
+    }
+
+    public Optional<CompanyTotals> findByCompanyId(long companyId) {
+        return jdbcTemplate.query(SELECT_ONE_SQL, TOTALS_MAPPER, companyId).stream().findFirst();
+    }
+
+    public void deleteByCompanyId(long companyId) {
+        jdbcTemplate.update(DELETE_SQL, companyId);
+    }
+
+    /**
+     * Locks the given employee rows in id order and returns their company and salary, so a following
+     * update or delete knows exactly what it changes. Ids without a row are left out.
+     */
+    public List<EmployeeSalary> lockEmployees(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        String placeholders = String.join(", ", Collections.nCopies(ids.size(), "?"));
+        return jdbcTemplate.query(String.format(LOCK_EMPLOYEES_SQL, placeholders), SALARY_MAPPER, ids.toArray());
+    }
+
+    /**
+     * Locks every employee row of the company in id order and returns their company and salary, so a
+     * following delete by company knows exactly which rows it removes.
+     */
+    public List<EmployeeSalary> lockEmployeesByCompanyId(long companyId) {
+        return jdbcTemplate.query(LOCK_EMPLOYEES_BY_COMPANY_SQL, SALARY_MAPPER, companyId);
+    }
+
+    /**
+     * Recounts one company from its employee rows and replaces its slot rows with the result. The employee
+     * rows are locked before the totals rows, the same order as the write paths, which lock or insert
+     * employees before adding a delta. A writer that already holds an employee row commits before the
+     * recount reads it, and no writer can hold a totals row while waiting for an employee row held here.
+     */
+    public void rebuild(long companyId) {
+        // FOR UPDATE cannot be combined with an aggregate, so the rows are summed here
+        List<EmployeeSalary> employees = lockEmployeesByCompanyId(companyId);
+        jdbcTemplate.queryForList(LOCK_TOTALS_SQL, Integer.class, companyId);
+        long payroll = employees.stream()
+                .map(EmployeeSalary::getSalary)
+                .filter(salary -> salary != null)
+                .mapToLong(Integer::longValue)
+                .sum();
+        jdbcTemplate.update(DELETE_SQL, companyId);
+        if (!employees.isEmpty()) {
+            jdbcTemplate.update(INSERT_SQL, companyId, 0, employees.size(), payroll);
+        }
+    }
+
+    /**
+     * Ids of all companies plus any that only have leftover totals rows.
+     */
+    public List<Long> findCompanyIds() {
+        return jdbcTemplate.queryForList(COMPANY_IDS_SQL, Long.class);
+    }
+
+    public List<TotalsVerification.Mismatch> findMismatches() {
+        return jdbcTemplate.query(MISMATCHES_SQL, MISMATCH_MAPPER);
+    }
+}
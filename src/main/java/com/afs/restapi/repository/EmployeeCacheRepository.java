@@ -0,0 +1,15 @@
+package com.afs.restapi.repository;
+
+public interface EmployeeCacheRepository {
+    /**
+     * Drops the cached {@code Company.employees} collection of one company, or of all companies when
+     * the id is null. Hibernate cannot do this itself because the association is mapped by a plain
+     * {@code companyId} column on the employee side.
+     */
+    void evictCompanyEmployees(Long companyId);
+
+    /**
+     * Drops every second-level cache entry that employee rows written through plain JDBC make stale.
+     */
+    void evictAfterJdbcWrites();
+}
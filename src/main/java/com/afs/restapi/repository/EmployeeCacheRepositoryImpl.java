@@ -0,0 +1,35 @@
+package com.afs.restapi.repository;
+
+import com.afs.restapi.entity.Company;
+import org.hibernate.Cache;
+
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceUnit;
+
+public class EmployeeCacheRepositoryImpl implements EmployeeCacheRepository {
+    private static final String COMPANY_EMPLOYEES_ROLE = Company.class.getName() + ".employees";
+
+    @PersistenceUnit
+    private EntityManagerFactory entityManagerFactory;
+
+    @Override
+    public void evictCompanyEmployees(Long companyId) {
+        if (companyId == null) {
+            cache().evictCollectionData(COMPANY_EMPLOYEES_ROLE);
+        } else {
+            cache().evictCollectionData(COMPANY_EMPLOYEES_ROLE, companyId);
+        }
+    }
+
+    @Override
+    public void evictAfterJdbcWrites() {
+        Cache cache = cache();
+        cache.evictCollectionData(COMPANY_EMPLOYEES_ROLE);
+        // query results are only invalidated by writes Hibernate sees
+        cache.evictQueryRegions();
+    }
+
+    private Cache cache() {
+        return entityManagerFactory.getCache().unwrap(Cache.class);
+    }
+}
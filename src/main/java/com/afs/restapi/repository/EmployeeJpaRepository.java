@@ -1,13 +1,104 @@
 package com.afs.restapi.repository;
 
+import com.afs.restapi.dto.CompanyStatistics;
+import com.afs.restapi.dto.EmployeeResponse;
+import com.afs.restapi.dto.ResourceVersion;
 import com.afs.restapi.entity.Employee;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
 
 @Repository
-public interface EmployeeJpaRepository extends JpaRepository<Employee,Long> {
+public interface EmployeeJpaRepository extends JpaRepository<Employee,Long>, JpaSpecificationExecutor<Employee>,
+        EmployeeSearchRepository, EmployeeCacheRepository {
+    String SELECT_RESPONSE = "select new com.afs.restapi.dto.EmployeeResponse(e.id, e.name, e.age, e.gender, "
+            + "e.salary, e.companyId, e.version) from Employee e ";
+    // from company, so a company without employees still gets a row with zero counts
+    String SELECT_COMPANY_STATISTICS = "select new com.afs.restapi.dto.CompanyStatistics(c.id, count(e), "
+            + "avg(e.salary), min(e.salary), max(e.salary), "
+            + "sum(case when e.gender = 'Male' then 1 else 0 end), "
+            + "sum(case when e.gender = 'Female' then 1 else 0 end)) "
+            + "from Company c left join Employee e on e.companyId = c.id ";
+    String SELECT_VERSION = "select new com.afs.restapi.dto.ResourceVersion(e.id, e.version, e.updatedAt) "
+            + "from Employee e ";
+
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
     List<Employee> findAllByGender(String gender);
-    List<Employee> findAllByCompanyId(Long companyId);
-}
\ No newline at end of file
+
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+    List<Employee> findAllByCompanyIdOrderByIdAsc(Long companyId);
+
+    @Query(SELECT_RESPONSE + "order by e.id")
+    List<EmployeeResponse> findAllResponses();
+
+    @Query(SELECT_RESPONSE + "order by e.id")
+    List<EmployeeResponse> findResponsesBy(Pageable pageable);
+
+    @Query(SELECT_RESPONSE + "where e.id > :lastId order by e.id")
+    Slice<EmployeeResponse> findResponsesAfter(@Param("lastId") Long lastId, Pageable pageable);
+
+    @Query(SELECT_RESPONSE + "where e.companyId in :companyIds order by e.id")
+    List<EmployeeResponse> findResponsesByCompanyIdIn(@Param("companyIds") Collection<Long> companyIds);
+
+    @Query(SELECT_RESPONSE + "where e.companyId is not null order by e.id")
+    List<EmployeeResponse> findAllResponsesWithCompany();
+
+    @Query(SELECT_COMPANY_STATISTICS + "group by c.id order by c.id")
+    List<CompanyStatistics> findCompanyStatistics();
+
+    @Query(SELECT_COMPANY_STATISTICS + "where c.id = :companyId group by c.id")
+    Optional<CompanyStatistics> findCompanyStatisticsByCompanyId(@Param("companyId") Long companyId);
+
+    @Query(SELECT_VERSION + "where e.id = :id")
+    Optional<ResourceVersion> findVersionById(@Param("id") Long id);
+
+    @Query(SELECT_VERSION + "where e.companyId = :companyId order by e.id")
+    List<ResourceVersion> findVersionsByCompanyId(@Param("companyId") Long companyId);
+
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "1000"), @QueryHint(name = HINT_READONLY, value = "true")})
+    @Query("select e from Employee e order by e.id")
+    Stream<Employee> streamAll();
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query(SELECT_RESPONSE + "order by e.id")
+    Stream<EmployeeResponse> streamAllResponses();
+
+    @Modifying
+    @Query("update Employee e set e.age = coalesce(:age, e.age), e.salary = coalesce(:salary, e.salary), "
+            + "e.version = e.version + 1, e.updatedAt = current_timestamp where e.id = :id")
+    int updateAgeAndSalary(@Param("id") Long id, @Param("age") Integer age, @Param("salary") Integer salary);
+
+    @Modifying
+    @Query("update Employee e set e.age = coalesce(:age, e.age), e.salary = coalesce(:salary, e.salary), "
+            + "e.version = e.version + 1, e.updatedAt = current_timestamp where e.id = :id and e.version = :version")
+    int updateAgeAndSalary(@Param("id") Long id, @Param("version") long version,
+                           @Param("age") Integer age, @Param("salary") Integer salary);
+
+    @Modifying
+    @Query("delete from Employee e where e.id = :id")
+    int bulkDeleteById(@Param("id") Long id);
+
+    @Modifying
+    @Query("delete from Employee e where e.id in :ids")
+    int bulkDeleteByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Query("delete from Employee e where e.companyId = :companyId")
+    int bulkDeleteByCompanyId(@Param("companyId") Long companyId);
+}
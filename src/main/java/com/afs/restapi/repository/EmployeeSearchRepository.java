@@ -0,0 +1,15 @@
+package com.afs.restapi.repository;
+
+import com.afs.restapi.entity.Employee;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+
+public interface EmployeeSearchRepository {
+    /**
+     * Returns one page of matching employees without the count query that
+     * {@code JpaSpecificationExecutor#findAll(Specification, Pageable)} issues.
+     */
+    List<Employee> search(Specification<Employee> specification, Pageable pageable);
+}
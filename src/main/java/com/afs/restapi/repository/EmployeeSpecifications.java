@@ -0,0 +1,68 @@
+package com.afs.restapi.repository;
+
+import com.afs.restapi.dto.EmployeeFilter;
+import com.afs.restapi.entity.Employee;
+import com.afs.restapi.exception.InvalidSortException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.Set;
+
+public final class EmployeeSpecifications {
+    private static final Set<String> SORTABLE_PROPERTIES = Set.of("id", "name", "age", "gender", "salary", "companyId");
+
+    private EmployeeSpecifications() {
+    }
+
+    public static Specification<Employee> matching(EmployeeFilter filter) {
+        return Specification.where(between("age", filter.getMinAge(), filter.getMaxAge()))
+                .and(between("salary", filter.getMinSalary(), filter.getMaxSalary()))
+                .and(equalTo("companyId", filter.getCompanyId()))
+                .and(equalTo("gender", filter.getGender()))
+                .and(nameStartsWith(filter.getNamePrefix()));
+    }
+
+    public static Specification<Employee> idGreaterThan(Long lastId) {
+        return (root, query, criteriaBuilder) -> criteriaBuilder.greaterThan(root.<Long>get("id"), lastId);
+    }
+
+    public static Sort validated(Sort sort) {
+        for (Sort.Order order : sort) {
+            if (!SORTABLE_PROPERTIES.contains(order.getProperty())) {
+                throw new InvalidSortException(order.getProperty());
+            }
+        }
+        return sort;
+    }
+
+    private static Specification<Employee> between(String attribute, Integer min, Integer max) {
+        if (min == null && max == null) {
+            return null;
+        }
+        return (root, query, criteriaBuilder) -> {
+            if (min == null) {
+                return criteriaBuilder.lessThanOrEqualTo(root.<Integer>get(attribute), max);
+            }
+            if (max == null) {
+                return criteriaBuilder.greaterThanOrEqualTo(root.<Integer>get(attribute), min);
+            }
+            return criteriaBuilder.between(root.<Integer>get(attribute), min, max);
+        };
+    }
+
+    private static <T> Specification<Employee> equalTo(String attribute, T value) {
+        if (value == null) {
+            return null;
+        }
+        return (root, query, criteriaBuilder) -> criteriaBuilder.equal(root.get(attribute), value);
+    }
+
+    private static Specification<Employee> nameStartsWith(String prefix) {
+        if (prefix == null) {
+            return null;
+        }
+        String pattern = prefix.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+        // a leading literal keeps the LIKE sargable, so it can use idx_employee_name
+        return (root, query, criteriaBuilder) -> criteriaBuilder.like(root.<String>get("name"), pattern, '\\');
+    }
+}
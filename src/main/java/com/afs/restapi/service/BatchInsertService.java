@@ -0,0 +1,165 @@
+package com.afs.restapi.service;
+
+import com.afs.restapi.config.CacheNames;
+import com.afs.restapi.dto.BatchResult;
+import com.afs.restapi.dto.ChangeEvent;
+import com.afs.restapi.entity.Company;
+import com.afs.restapi.entity.Employee;
+import com.afs.restapi.repository.EmployeeJpaRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+
+@Service
+public class BatchInsertService {
+    static final int CHUNK_SIZE = 1000;
+
+    private static final String INSERT_EMPLOYEE_SQL =
+            "insert into employee (name, age, gender, salary, company_id) values (?, ?, ?, ?, ?)";
+    private static final String INSERT_COMPANY_SQL =
+            "insert into company (name) values (?)";
+
+    private static final ParameterizedPreparedStatementSetter<Employee> EMPLOYEE_SETTER = (statement, employee) -> {
+        statement.setString(1, employee.getName());
+        statement.setObject(2, employee.getAge(), Types.INTEGER);
+        statement.setString(3, employee.getGender());
+        statement.setObject(4, employee.getSalary(), Types.INTEGER);
+        statement.setObject(5, employee.getCompanyId(), Types.BIGINT);
+    };
+    private static final ParameterizedPreparedStatementSetter<Company> COMPANY_SETTER =
+            (statement, company) -> statement.setString(1, company.getName());
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final EmployeeJpaRepository employeeJpaRepository;
+    private final EmployeeSnapshot employeeSnapshot;
+    private final ChangeEventService changeEventService;
+    private final CompanyTotalsService companyTotalsService;
+    private final MissingIdCaches missingIdCaches;
+
+    public BatchInsertService(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager, ObjectMapper objectMapper,
+                              EmployeeJpaRepository employeeJpaRepository, EmployeeSnapshot employeeSnapshot,
+                              ChangeEventService changeEventService, CompanyTotalsService companyTotalsService,
+                              MissingIdCaches missingIdCaches) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.employeeJpaRepository = employeeJpaRepository;
+        this.employeeSnapshot = employeeSnapshot;
+        this.changeEventService = changeEventService;
+        this.companyTotalsService = companyTotalsService;
+        this.missingIdCaches = missingIdCaches;
+    }
+
+    @CacheEvict(cacheNames = CacheNames.COMPANIES, allEntries = true)
+    public BatchResult createEmployees(List<Employee> employees) {
+        BatchResult result = insertInChunks(employees.iterator(), INSERT_EMPLOYEE_SQL, EMPLOYEE_SETTER,
+                this::recordEmployeesCreated);
+        employeeJpaRepository.evictAfterJdbcWrites();
+        return result;
+    }
+
+    @CacheEvict(cacheNames = CacheNames.COMPANIES, allEntries = true)
+    public BatchResult createEmployees(InputStream ndjson) throws IOException {
+        BatchResult result = insertInChunks(objectMapper.readerFor(Employee.class).readValues(ndjson),
+                INSERT_EMPLOYEE_SQL, EMPLOYEE_SETTER, this::recordEmployeesCreated);
+        employeeJpaRepository.evictAfterJdbcWrites();
+        return result;
+    }
+
+    public BatchResult createCompanies(List<Company> companies) {
+        return insertInChunks(companies.iterator(), INSERT_COMPANY_SQL, COMPANY_SETTER, this::recordCompaniesCreated);
+    }
+
+    public BatchResult createCompanies(InputStream ndjson) throws IOException {
+        return insertInChunks(objectMapper.readerFor(Company.class).readValues(ndjson), INSERT_COMPANY_SQL, COMPANY_SETTER,
+                this::recordCompaniesCreated);
+    }
+
+    private void recordEmployeesCreated(List<Employee> employees) {
+        // the generated ids are not returned, so consumers page past the last id they know
+        missingIdCaches.clearAfterCommit(CacheNames.MISSING_EMPLOYEES);
+        employeeSnapshot.recordBatchCreated();
+        // totals before the event, the same lock order as the single-row write paths
+        companyTotalsService.recordCreated(employees);
+        changeEventService.publishBatchCreated(ChangeEvent.EntityType.EMPLOYEE);
+    }
+
+    private void recordCompaniesCreated(List<Company> companies) {
+        missingIdCaches.clearAfterCommit(CacheNames.MISSING_COMPANIES);
+        changeEventService.publishBatchCreated(ChangeEvent.EntityType.COMPANY);
+    }
+
+    /**
+     * Inserts the rows in chunks of one transaction each; {@code recordCreated} runs inside the
+     * transaction of every chunk or replayed row that was inserted.
+     */
+    private <T> BatchResult insertInChunks(Iterator<T> rows, String sql, ParameterizedPreparedStatementSetter<T> setter,
+                                           Consumer<List<T>> recordCreated) {
+        BatchResult result = new BatchResult();
+        List<T> chunk = new ArrayList<>(CHUNK_SIZE);
+        int index = 0;
+        while (true) {
+            T row;
+            try {
+                if (!rows.hasNext()) {
+                    break;
+                }
+                row = rows.next();
+            } catch (RuntimeException exception) {
+                // the reader cannot resynchronise after a malformed row, so stop here
+                result.addFailure(index, "malformed row: " + exception.getMessage());
+                break;
+            }
+            chunk.add(row);
+            index++;
+            if (chunk.size() == CHUNK_SIZE) {
+                insertChunk(chunk, index - chunk.size(), sql, setter, recordCreated, result);
+                chunk = new ArrayList<>(CHUNK_SIZE);
+            }
+        }
+        if (!chunk.isEmpty()) {
+            insertChunk(chunk, index - chunk.size(), sql, setter, recordCreated, result);
+        }
+        return result;
+    }
+
+    private <T> void insertChunk(List<T> chunk, int firstIndex, String sql, ParameterizedPreparedStatementSetter<T> setter,
+                                 Consumer<List<T>> recordCreated, BatchResult result) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.batchUpdate(sql, chunk, chunk.size(), setter);
+                recordCreated.accept(chunk);
+            });
+            result.addCreated(chunk.size());
+        } catch (DataAccessException exception) {
+            // the chunk was rolled back; replay it row by row to find the offending rows
+            for (int i = 0; i < chunk.size(); i++) {
+                T row = chunk.get(i);
+                try {
+                    transactionTemplate.executeWithoutResult(status -> {
+                        jdbcTemplate.update(sql, statement -> setter.setValues(statement, row));
+                        recordCreated.accept(List.of(row));
+                    });
+                    result.addCreated(1);
+                } catch (DataAccessException rowException) {
+                    result.addFailure(firstIndex + i, rowException.getMostSpecificCause().getMessage());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package com.afs.restapi.service;
+
+import com.afs.restapi.dto.ChangeEvent;
+import com.afs.restapi.dto.ChangeFeed;
+import com.afs.restapi.exception.ChangesCompactedException;
+import com.afs.restapi.repository.ChangeEventRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * Change events for employees and companies, written to an outbox table in the same transaction as
+ * the change and read back by sequence through {@code GET /changes}.
+ * <p>
+ * Writers never wait on each other for an event: they only insert outbox rows. The relay gives them
+ * their sequence once they have committed. It runs after each local commit and once a second. The
+ * cost is that an event becomes readable a relay round trip after its commit rather than at commit,
+ * and that the whole feed is numbered by one relay transaction at a time. Each relay transaction
+ * moves up to {@code RELAY_BATCH_SIZE} rows, so a burst of writes is numbered in a few transactions.
+ * <p>
+ * Requests that find nothing new wait for up to their timeout. They are woken after each relay, and
+ * a periodic check also picks up events relayed by other instances.
+ */
+@Service
+public class ChangeEventService {
+    private static final Logger log = LoggerFactory.getLogger(ChangeEventService.class);
+    private static final long POLL_INTERVAL_MILLIS = 1000;
+    static final int RELAY_BATCH_SIZE = 1000;
+
+    private final ChangeEventRepository changeEventRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration retention;
+    private final int compactionBatchSize;
+    private final Set<Waiter> waiters = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean relayScheduled = new AtomicBoolean();
+    private final ScheduledExecutorService scheduler;
+
+    public ChangeEventService(ChangeEventRepository changeEventRepository, PlatformTransactionManager transactionManager,
+                              @Value("${app.changes.retention:7d}") Duration retention,
+                              @Value("${app.changes.compaction-interval:10m}") Duration compactionInterval,
+                              @Value("${app.changes.compaction-batch-size:1000}") int compactionBatchSize) {
+        this.changeEventRepository = changeEventRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.retention = retention;
+        this.compactionBatchSize = compactionBatchSize;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "change-feed");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::relayAndWakeQuietly, POLL_INTERVAL_MILLIS, POLL_INTERVAL_MILLIS,
+                TimeUnit.MILLISECONDS);
+        long compactionMillis = compactionInterval.toMillis();
+        scheduler.scheduleWithFixedDelay(this::compactQuietly, compactionMillis, compactionMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void publish(ChangeEvent.EntityType entityType, ChangeEvent.Operation operation, Collection<Long> entityIds) {
+        if (entityIds.isEmpty()) {
+            return;
+        }
+        changeEventRepository.append(entityType, operation, new ArrayList<>(entityIds));
+        relayAfterCommit();
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void publishBatchCreated(ChangeEvent.EntityType entityType) {
+        changeEventRepository.append(entityType, ChangeEvent.Operation.BATCH_CREATED, Collections.singletonList(null));
+        relayAfterCommit();
+    }
+
+    public long findLastSequence() {
+        return changeEventRepository.findLastSequence();
+    }
+
+    /**
+     * Numbers every committed outbox row and returns how many were moved into the feed.
+     */
+    public int relay() {
+        int relayed = 0;
+        int batch;
+        do {
+            batch = transactionTemplate.execute(status -> changeEventRepository.relay(RELAY_BATCH_SIZE));
+            relayed += batch;
+        } while (batch == RELAY_BATCH_SIZE);
+        return relayed;
+    }
+
+    /**
+     * Up to {@code limit} events after {@code since}. When there are none yet, the result completes as
+     * soon as one is committed, or empty once {@code timeout} has passed.
+     */
+    public DeferredResult<ChangeFeed> poll(long since, int limit, Duration timeout) {
+        if (since < changeEventRepository.findCompactedThrough()) {
+            throw new ChangesCompactedException();
+        }
+        DeferredResult<ChangeFeed> result = new DeferredResult<>(timeout.toMillis(), () -> ChangeFeed.empty(since));
+        Waiter waiter = new Waiter(since, limit, result);
+        if (!timeout.isZero()) {
+            waiters.add(waiter);
+            result.onCompletion(() -> waiters.remove(waiter));
+        }
+        // read after registering, so a commit in between still completes the request
+        List<ChangeEvent> events = changeEventRepository.findAfter(since, limit);
+        if (!events.isEmpty() || timeout.isZero()) {
+            waiter.complete(events);
+        }
+        return result;
+    }
+
+    /**
+     * Deletes the events created before the cutoff, in batches of one transaction each, and returns
+     * how many were removed. Consumers asking for anything older get 410 and have to resync.
+     */
+    public int compactBefore(Instant cutoff) {
+        Long lastSequence = changeEventRepository.findLastSequenceBefore(cutoff);
+        if (lastSequence == null) {
+            return 0;
+        }
+        int deleted = 0;
+        for (long from = changeEventRepository.findCompactedThrough(); from < lastSequence; from += compactionBatchSize) {
+            long afterSequence = from;
+            long throughSequence = Math.min(from + compactionBatchSize, lastSequence);
+            deleted += transactionTemplate.execute(status -> changeEventRepository.deleteRange(afterSequence, throughSequence));
+        }
+        return deleted;
+    }
+
+    private void relayAfterCommit() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                // commits arriving while a relay is queued are picked up by that relay
+                if (relayScheduled.compareAndSet(false, true)) {
+                    scheduler.execute(ChangeEventService.this::relayAndWakeQuietly);
+                }
+            }
+        });
+    }
+
+    private void relayAndWakeQuietly() {
+        relayScheduled.set(false);
+        try {
+            relay();
+        } catch (RuntimeException exception) {
+            // the rows stay in the outbox and the next run moves them
+            log.error("relaying change events failed", exception);
+        }
+        wakeWaitersQuietly();
+    }
+
+    private void wakeWaitersQuietly() {
+        if (waiters.isEmpty()) {
+            return;
+        }
+        try {
+            // waiters at the same position share one read
+            Map<Long, List<Waiter>> waitersBySince = waiters.stream()
+                    .collect(Collectors.groupingBy(waiter -> waiter.since));
+            waitersBySince.forEach((since, sameSince) -> {
+                int limit = sameSince.stream().mapToInt(waiter -> waiter.limit).max().orElse(0);
+                List<ChangeEvent> events = changeEventRepository.findAfter(since, limit);
+                if (!events.isEmpty()) {
+                    sameSince.forEach(waiter -> waiter.complete(events));
+                }
+            });
+        } catch (RuntimeException exception) {
+            // an exception would cancel the periodic check; waiters still time out on their own
+            log.error("reading change events for waiting requests failed", exception);
+        }
+    }
+
+    private void compactQuietly() {
+        try {
+            int deleted = compactBefore(Instant.now().minus(retention));
+            if (deleted > 0) {
+                log.info("compacted {} change events older than {}", deleted, retention);
+            }
+        } catch (RuntimeException exception) {
+            log.error("compacting change events failed", exception);
+        }
+    }
+
+    private static final class Waiter {
+        private final long since;
+        private final int limit;
+        private final DeferredResult<ChangeFeed> result;
+
+        private Waiter(long since, int limit, DeferredResult<ChangeFeed> result) {
+            this.since = since;
+            this.limit = limit;
+            this.result = result;
+        }
+
+        private void complete(List<ChangeEvent> events) {
+            List<ChangeEvent> page = events.size() > limit ? events.subList(0, limit) : events;
+            long next = page.isEmpty() ? since : page.get(page.size() - 1).getSequence();
+            result.setResult(new ChangeFeed(page, next));
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.afs.restapi.service;
+
+import com.afs.restapi.dto.EmployeeResponse;
+import com.afs.restapi.repository.EmployeeJpaRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Employees of many companies in one response, for callers that would otherwise request
+ * {@code /companies/{id}/employees} once per company.
+ */
+@Service
+public class CompanyEmployeesService {
+    private final EmployeeJpaRepository employeeJpaRepository;
+    private final ObjectMapper objectMapper;
+    private final int chunkSize;
+    private final ThreadPoolExecutor executor;
+
+    public CompanyEmployeesService(EmployeeJpaRepository employeeJpaRepository, ObjectMapper objectMapper,
+                                   @Value("${app.fan-out.chunk-size:200}") int chunkSize,
+                                   @Value("${app.fan-out.threads:4}") int threads,
+                                   @Value("${app.fan-out.queue-capacity:100}") int queueCapacity) {
+        this.employeeJpaRepository = employeeJpaRepository;
+        this.objectMapper = objectMapper;
+        this.chunkSize = chunkSize;
+        AtomicInteger threadNumber = new AtomicInteger();
+        // every worker holds a connection while it queries, so a full queue makes the request thread run
+        // the chunk itself instead of growing the pool
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "company-employees-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, CompanyEmployeesService::runInCaller);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Writes one JSON object keyed by company id, with the employees of each requested company in id
+     * order and an empty array for companies without any. Up to chunk-size ids are read with a single
+     * IN query; larger sets are split into chunks that are queried in parallel, and each chunk is
+     * written as soon as it and the chunks before it are done.
+     */
+    public void writeEmployeesByCompanyIds(List<Long> companyIds, OutputStream outputStream) throws IOException {
+        List<Long> distinctIds = companyIds.stream()
+                .distinct()
+                .collect(Collectors.toList());
+        List<List<Long>> chunks = new ArrayList<>();
+        for (int from = 0; from < distinctIds.size(); from += chunkSize) {
+            chunks.add(distinctIds.subList(from, Math.min(from + chunkSize, distinctIds.size())));
+        }
+        List<Future<List<EmployeeResponse>>> results = new ArrayList<>(chunks.size());
+        JsonGenerator generator = objectMapper.createGenerator(outputStream)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        try {
+            if (chunks.size() == 1) {
+                results.add(CompletableFuture.completedFuture(employeeJpaRepository.findResponsesByCompanyIdIn(chunks.get(0))));
+            } else {
+                chunks.forEach(chunk -> results.add(executor.submit(() -> employeeJpaRepository.findResponsesByCompanyIdIn(chunk))));
+            }
+            generator.writeStartObject();
+            for (int i = 0; i < chunks.size(); i++) {
+                writeGroups(generator, chunks.get(i), await(results.get(i)));
+                generator.flush();
+            }
+            generator.writeEndObject();
+            generator.flush();
+        } finally {
+            // chunks that have not started yet are pointless once the response has failed
+            results.forEach(result -> result.cancel(false));
+        }
+    }
+
+    /**
+     * Like {@link ThreadPoolExecutor.CallerRunsPolicy} while the pool is running. After shutdown that
+     * policy silently drops the task, and waiting on its future would never return, so it is rejected.
+     */
+    private static void runInCaller(Runnable task, ThreadPoolExecutor pool) {
+        if (pool.isShutdown()) {
+            throw new RejectedExecutionException("company employees executor is shut down");
+        }
+        task.run();
+    }
+
+    private static void writeGroups(JsonGenerator generator, List<Long> companyIds, List<EmployeeResponse> employees)
+            throws IOException {
+        Map<Long, List<EmployeeResponse>> employeesByCompanyId = new LinkedHashMap<>();
+        companyIds.forEach(companyId -> employeesByCompanyId.put(companyId, new ArrayList<>()));
+        employees.forEach(employee -> employeesByCompanyId.get(employee.getCompanyId()).add(employee));
+        for (Map.Entry<Long, List<EmployeeResponse>> group : employeesByCompanyId.entrySet()) {
+            generator.writeFieldName(String.valueOf(group.getKey()));
+            generator.writeStartArray();
+            for (EmployeeResponse employee : group.getValue()) {
+                generator.writeObject(employee);
+            }
+            generator.writeEndArray();
+        }
+    }
+
+    private static List<EmployeeResponse> await(Future<List<EmployeeResponse>> result) {
+        try {
+            return result.get();
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(exception);
+        } catch (ExecutionException exception) {
+            if (exception.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) exception.getCause();
+            }
+            throw new IllegalStateException(exception.getCause());
+        }
+    }
+}
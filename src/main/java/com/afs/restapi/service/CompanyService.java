@@ -1,54 +1,206 @@
 package com.afs.restapi.service;
 
+import com.afs.restapi.config.CacheNames;
+import com.afs.restapi.dto.ChangeEvent;
+import com.afs.restapi.dto.CompanyResponse;
+import com.afs.restapi.dto.CompanyStatistics;
+import com.afs.restapi.dto.CompanySummary;
+import com.afs.restapi.dto.CursorPage;
+import com.afs.restapi.dto.EmployeeResponse;
+import com.afs.restapi.dto.EmployeeSalary;
+import com.afs.restapi.dto.ResourceVersion;
 import com.afs.restapi.entity.Company;
 import com.afs.restapi.exception.CompanyNotFoundException;
+import com.afs.restapi.exception.PreconditionFailedException;
 import com.afs.restapi.repository.CompanyJpaRepository;
 import com.afs.restapi.repository.EmployeeJpaRepository;
-import com.afs.restapi.entity.Employee;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.Hibernate;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 @Service
 public class CompanyService {
 
     private final CompanyJpaRepository companyJpaRepository;
     private final EmployeeJpaRepository employeeJpaRepository;
+    private final MissingIdCaches missingIdCaches;
+    private final EmployeeSnapshot employeeSnapshot;
+    private final ChangeEventService changeEventService;
+    private final CompanyTotalsService companyTotalsService;
+    private final SingleFlight<Long, List<EmployeeResponse>> companyEmployeesLoads;
 
-    public CompanyService(CompanyJpaRepository companyJpaRepository, EmployeeJpaRepository employeeJpaRepository) {
+    public CompanyService(CompanyJpaRepository companyJpaRepository, EmployeeJpaRepository employeeJpaRepository,
+                          MissingIdCaches missingIdCaches, EmployeeSnapshot employeeSnapshot,
+                          ChangeEventService changeEventService, CompanyTotalsService companyTotalsService,
+                          MeterRegistry meterRegistry) {
         this.companyJpaRepository = companyJpaRepository;
         this.employeeJpaRepository =employeeJpaRepository;
+        this.employeeSnapshot = employeeSnapshot;
+        this.changeEventService = changeEventService;
+        this.companyTotalsService = companyTotalsService;
+        this.companyEmployeesLoads = new SingleFlight<>("company.employees", meterRegistry);
+        this.missingIdCaches = missingIdCaches;
     }
 
-    public List<Company> findAll() {
-        return companyJpaRepository.findAll();
+    @Transactional(readOnly = true)
+    public List<CompanyResponse> findAll() {
+        return withEmployees(companyJpaRepository.findAllSummaries(), employeeJpaRepository.findAllResponsesWithCompany());
     }
 
-    public List<Company> findByPage(Integer pageNumber, Integer pageSize) {
-        return companyJpaRepository.findAll(PageRequest.of(pageNumber - 1, pageSize)).getContent();
+    @Transactional(readOnly = true)
+    public List<CompanySummary> findAllSummaries() {
+        return companyJpaRepository.findAllSummaries();
     }
 
+    @Transactional(readOnly = true)
+    public List<CompanyResponse> findByPage(Integer pageNumber, Integer pageSize) {
+        return withEmployees(companyJpaRepository.findSummariesBy(PageRequest.of(pageNumber - 1, pageSize)));
+    }
+
+    @Transactional(readOnly = true)
+    public List<CompanySummary> findSummariesByPage(Integer pageNumber, Integer pageSize) {
+        return companyJpaRepository.findSummariesBy(PageRequest.of(pageNumber - 1, pageSize));
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPage<CompanyResponse> findByCursor(String cursor, Integer pageSize) {
+        Slice<CompanySummary> slice = companyJpaRepository.findSummariesAfter(
+                CursorPage.decodeCursor(cursor), PageRequest.of(0, pageSize));
+        List<CompanySummary> companies = slice.getContent();
+        String nextCursor = slice.hasNext()
+                ? CursorPage.encodeCursor(companies.get(companies.size() - 1).getId())
+                : null;
+        return new CursorPage<>(withEmployees(companies), nextCursor);
+    }
+
+    @Cacheable(cacheNames = CacheNames.COMPANIES, key = "#id")
     public Company findById(Long id) {
-        Company company = companyJpaRepository.findById(id).orElseThrow(CompanyNotFoundException::new);
+        throwIfKnownMissing(id);
+        long generation = missingIdCaches.generation(CacheNames.MISSING_COMPANIES);
+        Company company = companyJpaRepository.findById(id).orElseThrow(() -> rememberMissing(id, generation));
+        // the cached instance outlives its session, so its employees must be loaded before it is shared
+        Hibernate.initialize(company.getEmployees());
         return company;
     }
 
-    public void update(Long id, Company company) {
-        Company toBeUpdatedCompany = findById(id);
-        toBeUpdatedCompany.setName(company.getName());
-        companyJpaRepository.save(toBeUpdatedCompany);
+    @Transactional(readOnly = true)
+    public ResourceVersion findVersionById(Long id) {
+        throwIfKnownMissing(id);
+        long generation = missingIdCaches.generation(CacheNames.MISSING_COMPANIES);
+        return companyJpaRepository.findVersionById(id).orElseThrow(() -> rememberMissing(id, generation));
     }
 
+    @Transactional(readOnly = true)
+    public List<ResourceVersion> findEmployeeVersionsByCompanyId(Long id) {
+        return employeeJpaRepository.findVersionsByCompanyId(id);
+    }
+
+    @Transactional
+    @CacheEvict(cacheNames = CacheNames.COMPANIES, key = "#id")
+    public void update(Long id, Company company, Long expectedVersion) {
+        int updatedRows = expectedVersion == null
+                ? companyJpaRepository.updateName(id, company.getName())
+                : companyJpaRepository.updateName(id, expectedVersion, company.getName());
+        if (updatedRows == 0) {
+            if (expectedVersion != null && companyJpaRepository.existsById(id)) {
+                throw new PreconditionFailedException();
+            }
+            throw new CompanyNotFoundException();
+        }
+        changeEventService.publish(ChangeEvent.EntityType.COMPANY, ChangeEvent.Operation.UPDATED, List.of(id));
+    }
+
+    @Transactional
     public Company create(Company company) {
-        return companyJpaRepository.save(company);
+        Company savedCompany = companyJpaRepository.save(company);
+        missingIdCaches.clearAfterCommit(CacheNames.MISSING_COMPANIES);
+        changeEventService.publish(ChangeEvent.EntityType.COMPANY, ChangeEvent.Operation.CREATED,
+                List.of(savedCompany.getId()));
+        return savedCompany;
+    }
+
+    // no surrounding transaction, so callers waiting on a shared load do not hold a connection
+    public List<EmployeeResponse> findEmployeesByCompanyId(Long id) {
+        // cacheable query: ids come from the query cache and rows from the Employee region; id order
+        // matches what the snapshot returns
+        return employeeSnapshot.findByCompanyId(id)
+                .orElseGet(() -> companyEmployeesLoads.load(id, () -> employeeJpaRepository
+                        .findAllByCompanyIdOrderByIdAsc(id).stream()
+                        .map(EmployeeResponse::from)
+                        .collect(Collectors.toUnmodifiableList())));
+    }
+
+    @Transactional(readOnly = true)
+    public List<CompanyStatistics> findAllStatistics() {
+        return employeeJpaRepository.findCompanyStatistics();
     }
 
-    public List<Employee> findEmployeesByCompanyId(Long id) {
-        return employeeJpaRepository.findAllByCompanyId(id);
+    @Transactional(readOnly = true)
+    public CompanyStatistics findStatisticsById(Long id) {
+        return employeeJpaRepository.findCompanyStatisticsByCompanyId(id)
+                .orElseThrow(CompanyNotFoundException::new);
     }
 
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheNames.COMPANIES, key = "#id"),
+            @CacheEvict(cacheNames = CacheNames.EMPLOYEES, allEntries = true)
+    })
+    @Transactional
     public void delete(Long id) {
-        companyJpaRepository.deleteById(id);
+        // the bulk delete cannot report which employees it removed, and each one needs its own change event;
+        // locking the rows keeps the events in step with what the bulk delete below removes
+        List<Long> employeeIds = companyTotalsService.lockEmployeesByCompanyId(id).stream()
+                .map(EmployeeSalary::getId)
+                .collect(Collectors.toList());
+        // orphanRemoval without loading the collection; employees go first because of the foreign key
+        employeeJpaRepository.bulkDeleteByCompanyId(id);
+        if (companyJpaRepository.bulkDeleteById(id) == 0) {
+            throw new CompanyNotFoundException();
+        }
+        employeeSnapshot.recordCompanyDeleted(id);
+        companyTotalsService.deleteByCompanyId(id);
+        changeEventService.publish(ChangeEvent.EntityType.EMPLOYEE, ChangeEvent.Operation.DELETED, employeeIds);
+        changeEventService.publish(ChangeEvent.EntityType.COMPANY, ChangeEvent.Operation.DELETED, List.of(id));
+    }
+
+    private void throwIfKnownMissing(Long id) {
+        if (missingIdCaches.isKnownMissing(CacheNames.MISSING_COMPANIES, id)) {
+            throw new CompanyNotFoundException();
+        }
+    }
+
+    private CompanyNotFoundException rememberMissing(Long id, long generation) {
+        // repeated misses on this id skip the database until the next create clears the cache
+        missingIdCaches.remember(CacheNames.MISSING_COMPANIES, id, generation);
+        return new CompanyNotFoundException();
+    }
+
+    private List<CompanyResponse> withEmployees(List<CompanySummary> companies) {
+        if (companies.isEmpty()) {
+            return List.of();
+        }
+        List<Long> companyIds = companies.stream()
+                .map(CompanySummary::getId)
+                .collect(Collectors.toList());
+        return withEmployees(companies, employeeJpaRepository.findResponsesByCompanyIdIn(companyIds));
+    }
+
+    private static List<CompanyResponse> withEmployees(List<CompanySummary> companies, List<EmployeeResponse> employees) {
+        Map<Long, List<EmployeeResponse>> employeesByCompanyId = employees.stream()
+                .collect(Collectors.groupingBy(EmployeeResponse::getCompanyId));
+        return companies.stream()
+                .map(company -> new CompanyResponse(company.getId(), company.getName(), company.getVersion(),
+                        employeesByCompanyId.getOrDefault(company.getId(), List.of())))
+                .collect(Collectors.toList());
     }
 }
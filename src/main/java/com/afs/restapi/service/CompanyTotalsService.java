@@ -0,0 +1,175 @@
+package com.afs.restapi.service;
+
+import com.afs.restapi.dto.CompanyTotals;
+import com.afs.restapi.dto.EmployeeSalary;
+import com.afs.restapi.dto.TotalsVerification;
+import com.afs.restapi.entity.Employee;
+import com.afs.restapi.exception.CompanyNotFoundException;
+import com.afs.restapi.repository.CompanyJpaRepository;
+import com.afs.restapi.repository.CompanyTotalsRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+
+/**
+ * Materialized headcount and payroll per company, changed in the same transaction as the employees so
+ * that reads never need to aggregate the employee table.
+ * <p>
+ * Each company is spread over {@code app.company-totals.slots} rows and every transaction adds its
+ * deltas to a random one, so concurrent writers for a busy company rarely wait on the same row lock.
+ */
+@Service
+public class CompanyTotalsService {
+    // keeps each IN list well below database bind parameter limits
+    static final int LOCK_CHUNK_SIZE = 1000;
+
+    private final CompanyTotalsRepository companyTotalsRepository;
+    private final CompanyJpaRepository companyJpaRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int slots;
+
+    public CompanyTotalsService(CompanyTotalsRepository companyTotalsRepository, CompanyJpaRepository companyJpaRepository,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${app.company-totals.slots:8}") int slots) {
+        this.companyTotalsRepository = companyTotalsRepository;
+        this.companyJpaRepository = companyJpaRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.slots = Math.max(1, slots);
+    }
+
+    /**
+     * Locks the employee rows and returns their current company and salary. Call it before an update or
+     * delete, so the deltas passed on afterwards match what the statement actually changed.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public List<EmployeeSalary> lockEmployees(Collection<Long> employeeIds) {
+        // ascending ids across chunks too, so concurrent callers lock rows in the same order
+        List<Long> ids = employeeIds.stream()
+                .distinct()
+                .sorted()
+                .collect(Collectors.toList());
+        List<EmployeeSalary> employees = new ArrayList<>(ids.size());
+        for (int from = 0; from < ids.size(); from += LOCK_CHUNK_SIZE) {
+            employees.addAll(companyTotalsRepository.lockEmployees(ids.subList(from, Math.min(from + LOCK_CHUNK_SIZE, ids.size()))));
+        }
+        return employees;
+    }
+
+    /**
+     * Like {@link #lockEmployees}, for all employees of one company.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public List<EmployeeSalary> lockEmployeesByCompanyId(Long companyId) {
+        return companyTotalsRepository.lockEmployeesByCompanyId(companyId);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordCreated(Collection<Employee> employees) {
+        Map<Long, long[]> deltas = new TreeMap<>();
+        employees.stream()
+                .filter(employee -> employee.getCompanyId() != null)
+                .forEach(employee -> addDelta(deltas, employee.getCompanyId(), 1, salaryOf(employee.getSalary())));
+        apply(deltas);
+    }
+
+    /**
+     * Records the new salaries of employees previously returned by {@link #lockEmployees}; updates
+     * without a salary leave the totals alone.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordUpdated(Collection<EmployeeSalary> before, Map<Long, Employee> updates) {
+        Map<Long, long[]> deltas = new TreeMap<>();
+        before.stream()
+                .filter(employee -> employee.getCompanyId() != null)
+                .forEach(employee -> {
+                    Integer salary = updates.get(employee.getId()).getSalary();
+                    if (salary != null) {
+                        addDelta(deltas, employee.getCompanyId(), 0, salary - salaryOf(employee.getSalary()));
+                    }
+                });
+        apply(deltas);
+    }
+
+    /**
+     * Records the removal of employees previously returned by {@link #lockEmployees}.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordDeleted(Collection<EmployeeSalary> deleted) {
+        Map<Long, long[]> deltas = new TreeMap<>();
+        deleted.stream()
+                .filter(employee -> employee.getCompanyId() != null)
+                .forEach(employee -> addDelta(deltas, employee.getCompanyId(), -1, -salaryOf(employee.getSalary())));
+        apply(deltas);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void deleteByCompanyId(Long companyId) {
+        companyTotalsRepository.deleteByCompanyId(companyId);
+    }
+
+    @Transactional(readOnly = true)
+    public List<CompanyTotals> findAll() {
+        return companyTotalsRepository.findAll();
+    }
+
+    @Transactional(readOnly = true)
+    public CompanyTotals findByCompanyId(Long companyId) {
+        return companyTotalsRepository.findByCompanyId(companyId)
+                .orElseGet(() -> {
+                    if (!companyJpaRepository.existsById(companyId)) {
+                        throw new CompanyNotFoundException();
+                    }
+                    return CompanyTotals.empty(companyId);
+                });
+    }
+
+    /**
+     * Recounts every company from the employee table, one short transaction per company so that writers
+     * elsewhere are not blocked for the whole run, and returns what {@link #verify()} finds afterwards.
+     */
+    public TotalsVerification rebuild() {
+        companyTotalsRepository.findCompanyIds()
+                .forEach(companyId -> transactionTemplate.executeWithoutResult(
+                        status -> companyTotalsRepository.rebuild(companyId)));
+        return verify();
+    }
+
+    /**
+     * Compares the totals with a fresh aggregate of the employee table and lists the companies that differ.
+     */
+    @Transactional(readOnly = true)
+    public TotalsVerification verify() {
+        return new TotalsVerification(companyTotalsRepository.findMismatches());
+    }
+
+    private void apply(Map<Long, long[]> deltas) {
+        // one slot per call, and companies in id order, so two writers cannot lock rows in opposite order
+        int slot = ThreadLocalRandom.current().nextInt(slots);
+        deltas.forEach((companyId, delta) -> {
+            if (delta[0] != 0 || delta[1] != 0) {
+                companyTotalsRepository.add(companyId, slot, delta[0], delta[1]);
+            }
+        });
+    }
+
+    private static void addDelta(Map<Long, long[]> deltas, Long companyId, long headcount, long payroll) {
+        long[] delta = deltas.computeIfAbsent(companyId, id -> new long[2]);
+        delta[0] += headcount;
+        delta[1] += payroll;
+    }
+
+    private static long salaryOf(Integer salary) {
+        return salary == null ? 0 : salary;
+    }
+}
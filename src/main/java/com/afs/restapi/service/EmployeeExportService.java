@@ -0,0 +1,54 @@
+package com.afs.restapi.service;
+
+import com.afs.restapi.entity.Employee;
+import com.afs.restapi.repository.EmployeeJpaRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+@Service
+public class EmployeeExportService {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final EmployeeJpaRepository employeeJpaRepository;
+    private final ObjectWriter employeeWriter;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public EmployeeExportService(EmployeeJpaRepository employeeJpaRepository, ObjectMapper objectMapper) {
+        this.employeeJpaRepository = employeeJpaRepository;
+        this.employeeWriter = objectMapper.writerFor(Employee.class)
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    }
+
+    /**
+     * Writes every employee as one JSON document per line. Rows are read through a
+     * forward-only cursor and detached once written, so heap usage does not grow
+     * with the size of the table.
+     */
+    @Transactional(readOnly = true)
+    public void exportAll(OutputStream outputStream) throws IOException {
+        BufferedOutputStream bufferedOutputStream = new BufferedOutputStream(outputStream, BUFFER_SIZE);
+        try (Stream<Employee> employees = employeeJpaRepository.streamAll()) {
+            Iterator<Employee> iterator = employees.iterator();
+            while (iterator.hasNext()) {
+                Employee employee = iterator.next();
+                employeeWriter.writeValue(bufferedOutputStream, employee);
+                bufferedOutputStream.write('\n');
+                entityManager.detach(employee);
+            }
+        }
+        bufferedOutputStream.flush();
+    }
+}
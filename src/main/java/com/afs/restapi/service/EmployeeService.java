@@ -1,57 +1,301 @@
 package com.afs.restapi.service;
 
+import com.afs.restapi.config.CacheNames;
+import com.afs.restapi.dto.ChangeEvent;
+import com.afs.restapi.dto.CursorPage;
+import com.afs.restapi.dto.DeleteResult;
+import com.afs.restapi.dto.EmployeeFilter;
+import com.afs.restapi.dto.EmployeeResponse;
+import com.afs.restapi.dto.EmployeeSalary;
+import com.afs.restapi.dto.ResourceVersion;
 import com.afs.restapi.entity.Employee;
 import com.afs.restapi.exception.EmployeeNotFoundException;
+import com.afs.restapi.exception.PreconditionFailedException;
 import com.afs.restapi.repository.EmployeeJpaRepository;
+import com.afs.restapi.repository.EmployeeSpecifications;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.CachePut;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
 public class EmployeeService {
+    // keeps each IN list well below database bind parameter limits
+    static final int DELETE_CHUNK_SIZE = 1000;
 
     private final EmployeeJpaRepository employeeJpaRepository;
+    private final Cache cachedEmployees;
+    private final MissingIdCaches missingIdCaches;
+    private final EmployeeSnapshot employeeSnapshot;
+    private final ChangeEventService changeEventService;
+    private final CompanyTotalsService companyTotalsService;
+    private final SingleFlight<Long, Employee> employeeLoads;
+    private final SingleFlight<Long, ResourceVersion> versionLoads;
 
     @Autowired
-    public EmployeeService(EmployeeJpaRepository employeeJpaRepository) {
+    public EmployeeService(EmployeeJpaRepository employeeJpaRepository, CacheManager cacheManager,
+                           MissingIdCaches missingIdCaches,
+                           EmployeeSnapshot employeeSnapshot, ChangeEventService changeEventService,
+                           CompanyTotalsService companyTotalsService, MeterRegistry meterRegistry) {
         this.employeeJpaRepository = employeeJpaRepository;
+        this.employeeSnapshot = employeeSnapshot;
+        this.changeEventService = changeEventService;
+        this.companyTotalsService = companyTotalsService;
+        this.employeeLoads = new SingleFlight<>("employee", meterRegistry);
+        this.versionLoads = new SingleFlight<>("employee.version", meterRegistry);
+        this.cachedEmployees = cacheManager.getCache(CacheNames.EMPLOYEES);
+        this.missingIdCaches = missingIdCaches;
     }
 
-    public List<Employee> findAll() {
-        return employeeJpaRepository.findAll();
+    // no surrounding transaction: a snapshot hit needs no connection, and the repository calls open their own
+    public List<EmployeeResponse> findAll() {
+        return employeeSnapshot.find(new EmployeeFilter())
+                .orElseGet(employeeJpaRepository::findAllResponses);
     }
 
+    public List<EmployeeResponse> findAll(EmployeeFilter filter, Sort sort) {
+        if (filter.isEmpty() && sort.isUnsorted()) {
+            return findAll();
+        }
+        if (sort.isUnsorted()) {
+            Optional<List<EmployeeResponse>> snapshotEmployees = employeeSnapshot.find(filter);
+            if (snapshotEmployees.isPresent()) {
+                return snapshotEmployees.get();
+            }
+        }
+        return toResponses(employeeJpaRepository.findAll(EmployeeSpecifications.matching(filter),
+                EmployeeSpecifications.validated(sort)));
+    }
+
+    @Cacheable(cacheNames = CacheNames.EMPLOYEES, key = "#id")
     public Employee findById(Long id) {
-        return employeeJpaRepository.findById(id)
-                .orElseThrow(EmployeeNotFoundException::new);
+        throwIfKnownMissing(id);
+        long generation = missingIdCaches.generation(CacheNames.MISSING_EMPLOYEES);
+        // a burst of misses on a hot id, e.g. right after it was updated, runs a single select
+        return employeeLoads.load(id, () -> employeeJpaRepository.findById(id)
+                .orElseThrow(() -> rememberMissing(id, generation)));
     }
 
-    public void update(Long id, Employee employee) {
-        Employee toBeUpdatedEmployee = findById(id);
-        if (employee.getSalary() != null) {
-            toBeUpdatedEmployee.setSalary(employee.getSalary());
-        }
-        if (employee.getAge() != null) {
-            toBeUpdatedEmployee.setAge(employee.getAge());
+    // no surrounding transaction, so callers waiting on a shared load do not hold a connection
+    public ResourceVersion findVersionById(Long id) {
+        throwIfKnownMissing(id);
+        long generation = missingIdCaches.generation(CacheNames.MISSING_EMPLOYEES);
+        return versionLoads.load(id, () -> employeeJpaRepository.findVersionById(id)
+                .orElseThrow(() -> rememberMissing(id, generation)));
+    }
+
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheNames.EMPLOYEES, key = "#id"),
+            @CacheEvict(cacheNames = CacheNames.COMPANIES, allEntries = true)
+    })
+    @Transactional
+    public void update(Long id, Employee employee, Long expectedVersion) {
+        // the old salary is read under lock, so the payroll delta matches what the update replaces
+        List<EmployeeSalary> before = employee.getSalary() == null
+                ? List.of()
+                : companyTotalsService.lockEmployees(List.of(id));
+        int updatedRows = expectedVersion == null
+                ? employeeJpaRepository.updateAgeAndSalary(id, employee.getAge(), employee.getSalary())
+                : employeeJpaRepository.updateAgeAndSalary(id, expectedVersion, employee.getAge(), employee.getSalary());
+        if (updatedRows == 0) {
+            if (expectedVersion != null && employeeJpaRepository.existsById(id)) {
+                throw new PreconditionFailedException();
+            }
+            throw new EmployeeNotFoundException();
         }
-        employeeJpaRepository.save(toBeUpdatedEmployee);
+        employeeSnapshot.recordUpdated(id, employee.getAge(), employee.getSalary());
+        companyTotalsService.recordUpdated(before, Map.of(id, employee));
+        changeEventService.publish(ChangeEvent.EntityType.EMPLOYEE, ChangeEvent.Operation.UPDATED, List.of(id));
+    }
+
+    /**
+     * Applies many age/salary updates in one transaction and returns the ids that matched no row.
+     */
+    @CacheEvict(cacheNames = CacheNames.COMPANIES, allEntries = true)
+    @Transactional
+    public Set<Long> updateAll(Map<Long, Employee> updates) {
+        List<EmployeeSalary> before = companyTotalsService.lockEmployees(updates.entrySet().stream()
+                .filter(update -> update.getValue().getSalary() != null)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList()));
+        Set<Long> missingIds = new HashSet<>();
+        List<Long> updatedIds = new ArrayList<>(updates.size());
+        updates.forEach((id, employee) -> {
+            if (employeeJpaRepository.updateAgeAndSalary(id, employee.getAge(), employee.getSalary()) == 0) {
+                missingIds.add(id);
+            } else {
+                employeeSnapshot.recordUpdated(id, employee.getAge(), employee.getSalary());
+                updatedIds.add(id);
+            }
+        });
+        evictAfterCommit(updates.keySet());
+        companyTotalsService.recordUpdated(before, updates);
+        changeEventService.publish(ChangeEvent.EntityType.EMPLOYEE, ChangeEvent.Operation.UPDATED, updatedIds);
+        return missingIds;
     }
 
+    @Transactional(readOnly = true)
     public List<Employee> findAllByGender(String gender) {
         return employeeJpaRepository.findAllByGender(gender);
     }
 
+    @Caching(put = @CachePut(cacheNames = CacheNames.EMPLOYEES, key = "#result.id"),
+            evict = {
+                    @CacheEvict(cacheNames = CacheNames.COMPANIES, key = "#employee.companyId",
+                            condition = "#employee.companyId != null")
+            })
+    @Transactional
     public Employee create(Employee employee) {
-        return employeeJpaRepository.save(employee);
+        Employee savedEmployee = employeeJpaRepository.save(employee);
+        employeeJpaRepository.evictCompanyEmployees(savedEmployee.getCompanyId());
+        missingIdCaches.clearAfterCommit(CacheNames.MISSING_EMPLOYEES);
+        employeeSnapshot.recordCreated(savedEmployee);
+        companyTotalsService.recordCreated(List.of(savedEmployee));
+        changeEventService.publish(ChangeEvent.EntityType.EMPLOYEE, ChangeEvent.Operation.CREATED,
+                List.of(savedEmployee.getId()));
+        return savedEmployee;
     }
 
-    public List<Employee> findByPage(Integer pageNumber, Integer pageSize) {
-        return employeeJpaRepository.findAll(PageRequest.of(pageNumber - 1, pageSize)).getContent();
+    @Transactional(readOnly = true)
+    public List<EmployeeResponse> findByPage(Integer pageNumber, Integer pageSize) {
+        return employeeJpaRepository.findResponsesBy(PageRequest.of(pageNumber - 1, pageSize));
     }
 
+    @Transactional(readOnly = true)
+    public List<EmployeeResponse> findByPage(Integer pageNumber, Integer pageSize, EmployeeFilter filter, Sort sort) {
+        if (filter.isEmpty() && sort.isUnsorted()) {
+            return findByPage(pageNumber, pageSize);
+        }
+        return toResponses(employeeJpaRepository.search(EmployeeSpecifications.matching(filter),
+                PageRequest.of(pageNumber - 1, pageSize, EmployeeSpecifications.validated(sort))));
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPage<EmployeeResponse> findByCursor(String cursor, Integer pageSize) {
+        Slice<EmployeeResponse> slice = employeeJpaRepository.findResponsesAfter(
+                CursorPage.decodeCursor(cursor), PageRequest.of(0, pageSize));
+        List<EmployeeResponse> employees = slice.getContent();
+        String nextCursor = slice.hasNext()
+                ? CursorPage.encodeCursor(employees.get(employees.size() - 1).getId())
+                : null;
+        return new CursorPage<>(employees, nextCursor);
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPage<EmployeeResponse> findByCursor(String cursor, Integer pageSize, EmployeeFilter filter) {
+        if (filter.isEmpty()) {
+            return findByCursor(cursor, pageSize);
+        }
+        Specification<Employee> specification = EmployeeSpecifications.matching(filter)
+                .and(EmployeeSpecifications.idGreaterThan(CursorPage.decodeCursor(cursor)));
+        // one extra row tells whether another page exists without a count query
+        List<EmployeeResponse> employees = toResponses(employeeJpaRepository.search(specification,
+                PageRequest.of(0, pageSize + 1, Sort.by("id"))));
+        if (employees.size() <= pageSize) {
+            return new CursorPage<>(employees, null);
+        }
+        List<EmployeeResponse> page = employees.subList(0, pageSize);
+        return new CursorPage<>(page, CursorPage.encodeCursor(page.get(page.size() - 1).getId()));
+    }
+
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheNames.EMPLOYEES, key = "#id"),
+            @CacheEvict(cacheNames = CacheNames.COMPANIES, allEntries = true)
+    })
+    @Transactional
     public void delete(Long id) {
-        employeeJpaRepository.deleteById(id);
+        List<EmployeeSalary> deleted = companyTotalsService.lockEmployees(List.of(id));
+        // a bulk delete neither loads the row first nor fails on a missing one; the row count decides the 404
+        if (employeeJpaRepository.bulkDeleteById(id) == 0) {
+            throw new EmployeeNotFoundException();
+        }
+        employeeSnapshot.recordDeleted(List.of(id));
+        companyTotalsService.recordDeleted(deleted);
+        changeEventService.publish(ChangeEvent.EntityType.EMPLOYEE, ChangeEvent.Operation.DELETED, List.of(id));
+    }
+
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheNames.EMPLOYEES, allEntries = true),
+            @CacheEvict(cacheNames = CacheNames.COMPANIES, allEntries = true)
+    })
+    @Transactional
+    public DeleteResult deleteAll(List<Long> ids) {
+        List<Long> distinctIds = ids.stream()
+                .distinct()
+                .collect(Collectors.toList());
+        // the locked rows are exactly the ones the deletes below remove
+        List<EmployeeSalary> deletedEmployees = companyTotalsService.lockEmployees(distinctIds);
+        int deleted = 0;
+        for (int from = 0; from < distinctIds.size(); from += DELETE_CHUNK_SIZE) {
+            deleted += employeeJpaRepository.bulkDeleteByIdIn(
+                    distinctIds.subList(from, Math.min(from + DELETE_CHUNK_SIZE, distinctIds.size())));
+        }
+        if (deleted == 0 && !distinctIds.isEmpty()) {
+            throw new EmployeeNotFoundException();
+        }
+        List<Long> deletedIds = deletedEmployees.stream()
+                .map(EmployeeSalary::getId)
+                .collect(Collectors.toList());
+        employeeSnapshot.recordDeleted(deletedIds);
+        companyTotalsService.recordDeleted(deletedEmployees);
+        changeEventService.publish(ChangeEvent.EntityType.EMPLOYEE, ChangeEvent.Operation.DELETED, deletedIds);
+        return new DeleteResult(distinctIds.size(), deleted);
+    }
+
+    /**
+     * Evicts the cached employees once the transaction commits, or right away outside a transaction.
+     * Evicting earlier lets a concurrent read put the row as it was before the update back into the cache.
+     */
+    private void evictAfterCommit(Collection<Long> ids) {
+        List<Long> evictedIds = List.copyOf(ids);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            evictedIds.forEach(cachedEmployees::evict);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                evictedIds.forEach(cachedEmployees::evict);
+            }
+        });
+    }
+
+    private void throwIfKnownMissing(Long id) {
+        if (missingIdCaches.isKnownMissing(CacheNames.MISSING_EMPLOYEES, id)) {
+            throw new EmployeeNotFoundException();
+        }
+    }
+
+    private EmployeeNotFoundException rememberMissing(Long id, long generation) {
+        // repeated misses on this id skip the database until the next create clears the cache
+        missingIdCaches.remember(CacheNames.MISSING_EMPLOYEES, id, generation);
+        return new EmployeeNotFoundException();
+    }
+
+    private static List<EmployeeResponse> toResponses(List<Employee> employees) {
+        return employees.stream()
+                .map(EmployeeResponse::from)
+                .collect(Collectors.toList());
     }
 }
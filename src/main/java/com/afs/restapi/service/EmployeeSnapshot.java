@@ -0,0 +1,467 @@
+package com.afs.restapi.service;
+
+import com.afs.restapi.dto.EmployeeFilter;
+import com.afs.restapi.dto.EmployeeResponse;
+import com.afs.restapi.entity.Employee;
+import com.afs.restapi.repository.EmployeeJpaRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * Optional in-memory copy of the employee table for the unpaged list reads. Rows are kept column by
+ * column in primitive arrays in id order, gender and name are dictionary encoded, and companyId and
+ * gender have posting lists of row numbers.
+ * <p>
+ * Writes made through the services are applied once their transaction commits. Each one moves
+ * {@code startedWrites} forward before the commit and {@code appliedWrites} after the snapshot has
+ * caught up, so a read is answered here only while both versions are equal. Otherwise, and while the
+ * snapshot is loading, callers get an empty result and read from the database instead.
+ */
+@Component
+public class EmployeeSnapshot {
+    private static final Logger log = LoggerFactory.getLogger(EmployeeSnapshot.class);
+    // a run of batch inserts invalidates over and over but should cause a single reload
+    private static final long REBUILD_DELAY_MILLIS = 1000;
+    private static final long REBUILD_RETRY_MILLIS = 100;
+
+    private final boolean enabled;
+    private final EmployeeJpaRepository employeeJpaRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final AtomicLong startedWrites = new AtomicLong();
+    private final AtomicLong appliedWrites = new AtomicLong();
+    private final AtomicBoolean rebuildScheduled = new AtomicBoolean();
+    private final ScheduledExecutorService loader;
+    // null until loaded, and again whenever a write could not be applied; guarded by lock
+    private Columns columns;
+
+    public EmployeeSnapshot(@Value("${app.snapshot.enabled:false}") boolean enabled,
+                            EmployeeJpaRepository employeeJpaRepository,
+                            PlatformTransactionManager transactionManager) {
+        this.enabled = enabled;
+        this.employeeJpaRepository = employeeJpaRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.loader = enabled
+                ? Executors.newSingleThreadScheduledExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, "employee-snapshot-loader");
+                    thread.setDaemon(true);
+                    return thread;
+                })
+                : null;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        if (enabled && rebuildScheduled.compareAndSet(false, true)) {
+            loader.execute(this::rebuildInBackground);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        if (loader != null) {
+            loader.shutdownNow();
+        }
+    }
+
+    /**
+     * Employees matching the filter in id order, or empty when the caller has to ask the database.
+     */
+    public Optional<List<EmployeeResponse>> find(EmployeeFilter filter) {
+        // LIKE follows the column collation, which a plain startsWith cannot reproduce
+        if (!enabled || filter.getNamePrefix() != null) {
+            return Optional.empty();
+        }
+        lock.readLock().lock();
+        try {
+            if (columns == null || startedWrites.get() != appliedWrites.get()) {
+                return Optional.empty();
+            }
+            return Optional.of(columns.find(filter));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Optional<List<EmployeeResponse>> findByCompanyId(Long companyId) {
+        EmployeeFilter filter = new EmployeeFilter();
+        filter.setCompanyId(companyId);
+        return find(filter);
+    }
+
+    public void recordCreated(Employee employee) {
+        EmployeeResponse row = EmployeeResponse.from(employee);
+        afterCommit(columns -> columns.append(row));
+    }
+
+    public void recordUpdated(Long id, Integer age, Integer salary) {
+        afterCommit(columns -> columns.update(id, age, salary));
+    }
+
+    public void recordDeleted(Collection<Long> ids) {
+        afterCommit(columns -> {
+            ids.forEach(columns::delete);
+            return true;
+        });
+    }
+
+    public void recordCompanyDeleted(Long companyId) {
+        afterCommit(columns -> {
+            columns.deleteCompany(companyId);
+            return true;
+        });
+    }
+
+    /**
+     * For writes that bypass the entity model, such as JDBC batch inserts, whose rows are not known here.
+     * Counts as a write in progress until the transaction completes, and once it commits the snapshot
+     * stops answering reads until it has been reloaded in the background.
+     */
+    public void recordBatchCreated() {
+        afterCommit(columns -> false);
+    }
+
+    /**
+     * Stops answering reads right away until the snapshot has been reloaded in the background, e.g.
+     * after the table was changed outside the application.
+     */
+    public void invalidate() {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            columns = null;
+            // moving both versions makes a load that is already running discard its result
+            startedWrites.incrementAndGet();
+            appliedWrites.incrementAndGet();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        requestRebuild();
+    }
+
+    /**
+     * Loads the whole table and installs it, unless a write started in the meantime, in which case
+     * the load may have missed it and false is returned.
+     */
+    public boolean rebuild() {
+        long version = startedWrites.get();
+        if (appliedWrites.get() != version) {
+            return false;
+        }
+        Columns loaded = readOnlyTransaction.execute(status -> {
+            Columns rows = new Columns();
+            try (Stream<EmployeeResponse> employees = employeeJpaRepository.streamAllResponses()) {
+                employees.forEach(rows::append);
+            }
+            return rows;
+        });
+        lock.writeLock().lock();
+        try {
+            if (startedWrites.get() != version) {
+                return false;
+            }
+            columns = loaded;
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void afterCommit(Predicate<Columns> mutation) {
+        if (!enabled) {
+            return;
+        }
+        startedWrites.incrementAndGet();
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            apply(mutation);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                apply(status == STATUS_COMMITTED ? mutation : null);
+            }
+        });
+    }
+
+    private void apply(Predicate<Columns> mutation) {
+        lock.writeLock().lock();
+        try {
+            if (columns == null || mutation == null) {
+                return;
+            }
+            if (!mutation.test(columns)) {
+                // the database has a row the snapshot does not, or ids arrived out of order
+                columns = null;
+                requestRebuild();
+            } else if (columns.deletedRows > columns.size / 2) {
+                // deleted rows stay behind as tombstones until a reload compacts them away
+                requestRebuild();
+            }
+        } finally {
+            appliedWrites.incrementAndGet();
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void requestRebuild() {
+        if (rebuildScheduled.compareAndSet(false, true)) {
+            loader.schedule(this::rebuildInBackground, REBUILD_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void rebuildInBackground() {
+        rebuildScheduled.set(false);
+        try {
+            while (!rebuild()) {
+                Thread.sleep(REBUILD_RETRY_MILLIS);
+            }
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException exception) {
+            log.error("loading the employee snapshot failed", exception);
+        }
+    }
+
+    private static final class Columns {
+        private static final int INITIAL_CAPACITY = 1024;
+        private static final int NULL_INT = Integer.MIN_VALUE;
+        private static final long NULL_LONG = Long.MIN_VALUE;
+
+        private long[] ids = new long[INITIAL_CAPACITY];
+        private int[] ages = new int[INITIAL_CAPACITY];
+        private int[] salaries = new int[INITIAL_CAPACITY];
+        private long[] companyIds = new long[INITIAL_CAPACITY];
+        private int[] genders = new int[INITIAL_CAPACITY];
+        private int[] names = new int[INITIAL_CAPACITY];
+        private long[] versions = new long[INITIAL_CAPACITY];
+        private final BitSet deleted = new BitSet();
+        private final Dictionary genderDictionary = new Dictionary();
+        private final Dictionary nameDictionary = new Dictionary();
+        private final Map<Long, IntList> rowsByCompanyId = new HashMap<>();
+        // indexed by gender code
+        private final List<IntList> rowsByGender = new ArrayList<>();
+        private int size;
+        private int deletedRows;
+
+        private boolean append(EmployeeResponse employee) {
+            // identity ids only grow, so appending keeps the id column sorted for binary search
+            if (size > 0 && employee.getId() <= ids[size - 1]) {
+                return false;
+            }
+            if (size == ids.length) {
+                grow();
+            }
+            int row = size++;
+            ids[row] = employee.getId();
+            ages[row] = toInt(employee.getAge());
+            salaries[row] = toInt(employee.getSalary());
+            companyIds[row] = employee.getCompanyId() == null ? NULL_LONG : employee.getCompanyId();
+            genders[row] = genderDictionary.encode(employee.getGender());
+            names[row] = nameDictionary.encode(employee.getName());
+            versions[row] = employee.getVersion();
+            if (employee.getCompanyId() != null) {
+                rowsByCompanyId.computeIfAbsent(employee.getCompanyId(), companyId -> new IntList()).add(row);
+            }
+            if (genders[row] != Dictionary.NULL_CODE) {
+                while (rowsByGender.size() <= genders[row]) {
+                    rowsByGender.add(new IntList());
+                }
+                rowsByGender.get(genders[row]).add(row);
+            }
+            return true;
+        }
+
+        private boolean update(Long id, Integer age, Integer salary) {
+            int row = rowOf(id);
+            if (row < 0) {
+                return false;
+            }
+            // same rule as the update statement: null keeps the current value
+            if (age != null) {
+                ages[row] = age;
+            }
+            if (salary != null) {
+                salaries[row] = salary;
+            }
+            versions[row]++;
+            return true;
+        }
+
+        private void delete(Long id) {
+            int row = rowOf(id);
+            if (row >= 0) {
+                deleted.set(row);
+                deletedRows++;
+            }
+        }
+
+        private void deleteCompany(Long companyId) {
+            IntList rows = rowsByCompanyId.remove(companyId);
+            if (rows == null) {
+                return;
+            }
+            for (int i = 0; i < rows.size; i++) {
+                if (!deleted.get(rows.values[i])) {
+                    deleted.set(rows.values[i]);
+                    deletedRows++;
+                }
+            }
+        }
+
+        private List<EmployeeResponse> find(EmployeeFilter filter) {
+            boolean[] genderMatches = filter.getGender() == null ? null : genderDictionary.matchesIgnoringCase(filter.getGender());
+            IntList candidates;
+            if (filter.getCompanyId() != null) {
+                candidates = rowsByCompanyId.getOrDefault(filter.getCompanyId(), IntList.EMPTY);
+            } else if (genderMatches != null) {
+                candidates = new IntList();
+                for (int code = 0; code < genderMatches.length; code++) {
+                    if (genderMatches[code] && code < rowsByGender.size()) {
+                        candidates.addAll(rowsByGender.get(code));
+                    }
+                }
+                // MySQL compares case-insensitively, so "male" and "Male" rows are merged back into id order
+                candidates.sort();
+            } else {
+                candidates = null;
+            }
+            int count = candidates == null ? size : candidates.size;
+            List<EmployeeResponse> employees = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                int row = candidates == null ? i : candidates.values[i];
+                if (!deleted.get(row)
+                        && inRange(ages[row], filter.getMinAge(), filter.getMaxAge())
+                        && inRange(salaries[row], filter.getMinSalary(), filter.getMaxSalary())
+                        && (filter.getCompanyId() == null || companyIds[row] == filter.getCompanyId())
+                        && (genderMatches == null || genders[row] != Dictionary.NULL_CODE && genderMatches[genders[row]])) {
+                    employees.add(read(row));
+                }
+            }
+            return employees;
+        }
+
+        private EmployeeResponse read(int row) {
+            return new EmployeeResponse(ids[row], nameDictionary.decode(names[row]), toInteger(ages[row]),
+                    genderDictionary.decode(genders[row]), toInteger(salaries[row]),
+                    companyIds[row] == NULL_LONG ? null : companyIds[row], versions[row]);
+        }
+
+        private int rowOf(Long id) {
+            int row = Arrays.binarySearch(ids, 0, size, id);
+            return row >= 0 && !deleted.get(row) ? row : -1;
+        }
+
+        private void grow() {
+            int capacity = ids.length * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            ages = Arrays.copyOf(ages, capacity);
+            salaries = Arrays.copyOf(salaries, capacity);
+            companyIds = Arrays.copyOf(companyIds, capacity);
+            genders = Arrays.copyOf(genders, capacity);
+            names = Arrays.copyOf(names, capacity);
+            versions = Arrays.copyOf(versions, capacity);
+        }
+
+        private static boolean inRange(int value, Integer min, Integer max) {
+            if (min == null && max == null) {
+                return true;
+            }
+            // a null column never satisfies a comparison in SQL
+            return value != NULL_INT && (min == null || value >= min) && (max == null || value <= max);
+        }
+
+        private static int toInt(Integer value) {
+            return value == null ? NULL_INT : value;
+        }
+
+        private static Integer toInteger(int value) {
+            return value == NULL_INT ? null : value;
+        }
+    }
+
+    private static final class Dictionary {
+        private static final int NULL_CODE = -1;
+
+        private final List<String> values = new ArrayList<>();
+        private final Map<String, Integer> codes = new HashMap<>();
+
+        private int encode(String value) {
+            if (value == null) {
+                return NULL_CODE;
+            }
+            return codes.computeIfAbsent(value, key -> {
+                values.add(key);
+                return values.size() - 1;
+            });
+        }
+
+        private String decode(int code) {
+            return code == NULL_CODE ? null : values.get(code);
+        }
+
+        private boolean[] matchesIgnoringCase(String value) {
+            boolean[] matches = new boolean[values.size()];
+            for (int code = 0; code < matches.length; code++) {
+                matches[code] = values.get(code).equalsIgnoreCase(value);
+            }
+            return matches;
+        }
+    }
+
+    private static final class IntList {
+        private static final IntList EMPTY = new IntList();
+
+        private int[] values = new int[8];
+        private int size;
+
+        private void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        private void addAll(IntList other) {
+            if (size + other.size > values.length) {
+                values = Arrays.copyOf(values, Math.max(size + other.size, size * 2));
+            }
+            System.arraycopy(other.values, 0, values, size, other.size);
+            size += other.size;
+        }
+
+        private void sort() {
+            Arrays.sort(values, 0, size);
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package com.afs.restapi.service;
+
+import com.afs.restapi.dto.UpdateSubmission;
+import com.afs.restapi.entity.Employee;
+import com.afs.restapi.exception.EmployeeNotFoundException;
+import com.afs.restapi.exception.SubmissionNotFoundException;
+import com.afs.restapi.exception.UpdateQueueClosedException;
+import com.afs.restapi.exception.UpdateQueueFullException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind queue for {@code PUT /employees/{id}} requests sent with {@code Prefer: respond-async}.
+ * Updates wait in memory keyed by employee id, so a later update for the same id is merged into the
+ * pending one, and a scheduler applies them in batches of one transaction each.
+ */
+@Service
+public class EmployeeUpdateQueue {
+    private static final Logger log = LoggerFactory.getLogger(EmployeeUpdateQueue.class);
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 30;
+
+    private final EmployeeService employeeService;
+    private final int capacity;
+    private final int batchSize;
+    // insertion ordered so the oldest ids are flushed first; guarded by this
+    private final Map<Long, PendingUpdate> pending = new LinkedHashMap<>();
+    private final Cache<String, UpdateSubmission> submissions;
+    private final ScheduledExecutorService scheduler;
+    private final Counter coalescedCounter;
+    private boolean closed;
+
+    public EmployeeUpdateQueue(EmployeeService employeeService,
+                               @Value("${app.write-behind.capacity:10000}") int capacity,
+                               @Value("${app.write-behind.batch-size:500}") int batchSize,
+                               @Value("${app.write-behind.flush-interval:200ms}") Duration flushInterval,
+                               @Value("${app.write-behind.status-retention:10m}") Duration statusRetention,
+                               MeterRegistry meterRegistry) {
+        this.employeeService = employeeService;
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.submissions = Caffeine.newBuilder()
+                .expireAfterWrite(statusRetention)
+                .build();
+        this.coalescedCounter = Counter.builder("employee.update.queue.coalesced")
+                .description("Queued employee updates merged into an update already pending for the same id")
+                .register(meterRegistry);
+        Gauge.builder("employee.update.queue.size", this, EmployeeUpdateQueue::size)
+                .description("Employee ids with an update waiting to be flushed")
+                .register(meterRegistry);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "employee-update-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMillis = flushInterval.toMillis();
+        scheduler.scheduleWithFixedDelay(this::flushQuietly, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public UpdateSubmission submit(Long id, Employee employee) {
+        UpdateSubmission submission = new UpdateSubmission(UUID.randomUUID().toString(), id);
+        synchronized (this) {
+            if (closed) {
+                throw new UpdateQueueClosedException();
+            }
+            PendingUpdate update = pending.get(id);
+            if (update == null) {
+                if (pending.size() >= capacity) {
+                    throw new UpdateQueueFullException();
+                }
+                update = new PendingUpdate(id);
+                pending.put(id, update);
+            } else {
+                coalescedCounter.increment();
+            }
+            update.merge(employee, submission);
+        }
+        submissions.put(submission.getId(), submission);
+        return submission;
+    }
+
+    public UpdateSubmission findSubmission(String submissionId) {
+        UpdateSubmission submission = submissions.getIfPresent(submissionId);
+        if (submission == null) {
+            throw new SubmissionNotFoundException();
+        }
+        return submission;
+    }
+
+    public synchronized int size() {
+        return pending.size();
+    }
+
+    /**
+     * Applies everything queued so far. Runs on the scheduler, and once more on shutdown.
+     */
+    public void flush() {
+        for (List<PendingUpdate> batch = takeBatch(); !batch.isEmpty(); batch = takeBatch()) {
+            apply(batch);
+        }
+    }
+
+    @PreDestroy
+    public void drain() throws InterruptedException {
+        synchronized (this) {
+            closed = true;
+        }
+        scheduler.shutdown();
+        if (!scheduler.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            log.warn("employee update flush did not finish within {}s", SHUTDOWN_TIMEOUT_SECONDS);
+        }
+        // the scheduler is stopped and submit rejects, so this sees the final contents of the queue
+        flush();
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException exception) {
+            // an exception would cancel the scheduled task; the failed submissions already carry it
+            log.error("flushing queued employee updates failed", exception);
+        }
+    }
+
+    private synchronized List<PendingUpdate> takeBatch() {
+        List<PendingUpdate> batch = new ArrayList<>(Math.min(batchSize, pending.size()));
+        Iterator<PendingUpdate> iterator = pending.values().iterator();
+        while (iterator.hasNext() && batch.size() < batchSize) {
+            batch.add(iterator.next());
+            iterator.remove();
+        }
+        return batch;
+    }
+
+    private void apply(List<PendingUpdate> batch) {
+        Map<Long, Employee> updates = new LinkedHashMap<>();
+        batch.forEach(update -> updates.put(update.id, update.toEmployee()));
+        try {
+            Set<Long> missingIds = employeeService.updateAll(updates);
+            batch.forEach(update -> update.complete(missingIds.contains(update.id)
+                    ? UpdateSubmission.Status.NOT_FOUND
+                    : UpdateSubmission.Status.APPLIED, null));
+        } catch (RuntimeException batchException) {
+            // replay one by one so that a single bad row does not fail the rest of its batch
+            batch.forEach(this::applyAlone);
+        }
+    }
+
+    private void applyAlone(PendingUpdate update) {
+        try {
+            employeeService.update(update.id, update.toEmployee(), null);
+            update.complete(UpdateSubmission.Status.APPLIED, null);
+        } catch (EmployeeNotFoundException exception) {
+            update.complete(UpdateSubmission.Status.NOT_FOUND, exception.getMessage());
+        } catch (RuntimeException exception) {
+            update.complete(UpdateSubmission.Status.FAILED, exception.getMessage());
+        }
+    }
+
+    private static final class PendingUpdate {
+        private final Long id;
+        private final List<UpdateSubmission> submissions = new ArrayList<>();
+        private Integer age;
+        private Integer salary;
+
+        private PendingUpdate(Long id) {
+            this.id = id;
+        }
+
+        private void merge(Employee employee, UpdateSubmission submission) {
+            // same rule as a synchronous PUT: null fields keep the value they would otherwise have
+            if (employee.getAge() != null) {
+                age = employee.getAge();
+            }
+            if (employee.getSalary() != null) {
+                salary = employee.getSalary();
+            }
+            submissions.add(submission);
+        }
+
+        private Employee toEmployee() {
+            return new Employee(id, null, age, null, salary);
+        }
+
+        private void complete(UpdateSubmission.Status status, String message) {
+            submissions.forEach(submission -> submission.complete(status, message));
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.afs.restapi.service;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The negative-lookup caches ({@code missingEmployees}, {@code missingCompanies}) with a create generation
+ * per cache. A miss is only remembered if no create committed since the lookup started. Otherwise a select
+ * that ran before an insert committed could store its marker after the create cleared the cache, and
+ * the new id would answer 404 until the marker expires.
+ */
+@Component
+public class MissingIdCaches {
+    private final CacheManager cacheManager;
+    private final Map<String, AtomicLong> generations = new ConcurrentHashMap<>();
+
+    public MissingIdCaches(CacheManager cacheManager) {
+        this.cacheManager = cacheManager;
+    }
+
+    public boolean isKnownMissing(String cacheName, Long id) {
+        return cacheManager.getCache(cacheName).get(id) != null;
+    }
+
+    /**
+     * Take this before the select whose miss may be passed to {@link #remember}.
+     */
+    public long generation(String cacheName) {
+        return generationOf(cacheName).get();
+    }
+
+    public void remember(String cacheName, Long id, long generationBeforeRead) {
+        Cache cache = cacheManager.getCache(cacheName);
+        cache.put(id, Boolean.TRUE);
+        // checked after the put: a create committing in between either clears the marker or is seen here
+        if (generationOf(cacheName).get() != generationBeforeRead) {
+            cache.evict(id);
+        }
+    }
+
+    /**
+     * Clears the cache once the current transaction commits, when the new rows are visible to lookups,
+     * or right away outside a transaction.
+     */
+    public void clearAfterCommit(String cacheName) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            clear(cacheName);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                clear(cacheName);
+            }
+        });
+    }
+
+    private void clear(String cacheName) {
+        generationOf(cacheName).incrementAndGet();
+        cacheManager.getCache(cacheName).clear();
+    }
+
+    private AtomicLong generationOf(String cacheName) {
+        return generations.computeIfAbsent(cacheName, name -> new AtomicLong());
+    }
+}
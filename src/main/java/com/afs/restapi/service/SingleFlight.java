@@ -0,0 +1,72 @@
+package com.afs.restapi.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Lets concurrent callers asking for the same key share one in-flight load: the first caller runs
+ * it, and everyone arriving before it finishes gets the same result or exception. Nothing is kept
+ * once the load completes, so this only collapses bursts and is not a cache.
+ * <p>
+ * Loads should run outside any transaction, otherwise every waiting caller holds a connection while
+ * it waits. The coalescing ratio is {@code single.flight.calls{result="shared"}} over all calls.
+ */
+class SingleFlight<K, V> {
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final Counter loadedCounter;
+    private final Counter sharedCounter;
+
+    SingleFlight(String name, MeterRegistry meterRegistry) {
+        this.loadedCounter = Counter.builder("single.flight.calls")
+                .description("Reads that ran their own load or shared the one already in flight for the same key")
+                .tag("name", name)
+                .tag("result", "loaded")
+                .register(meterRegistry);
+        this.sharedCounter = Counter.builder("single.flight.calls")
+                .description("Reads that ran their own load or shared the one already in flight for the same key")
+                .tag("name", name)
+                .tag("result", "shared")
+                .register(meterRegistry);
+    }
+
+    V load(K key, Supplier<V> loader) {
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, flight);
+        if (existing != null) {
+            sharedCounter.increment();
+            return join(existing);
+        }
+        loadedCounter.increment();
+        try {
+            V value = loader.get();
+            flight.complete(value);
+            return value;
+        } catch (RuntimeException | Error exception) {
+            flight.completeExceptionally(exception);
+            throw exception;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    private static <V> V join(CompletableFuture<V> flight) {
+        try {
+            return flight.join();
+        } catch (CompletionException exception) {
+            // rethrow what the loading caller saw, e.g. a not-found exception that maps to 404
+            if (exception.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) exception.getCause();
+            }
+            if (exception.getCause() instanceof Error) {
+                throw (Error) exception.getCause();
+            }
+            throw exception;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+create table company
+(
+    id   bigint not null auto_increment,
+    name varchar(255),
+    primary key (id)
+);
+
+create table employee
+(
+    id         bigint not null auto_increment,
+    name       varchar(255),
+    age        integer,
+    gender     varchar(255),
+    salary     integer,
+    company_id bigint,
+    primary key (id),
+    constraint fk_employee_company foreign key (company_id) references company (id)
+);
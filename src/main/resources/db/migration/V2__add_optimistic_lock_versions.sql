@@ -0,0 +1,3 @@
+alter table company add column version bigint default 0 not null;
+
+alter table employee add column version bigint default 0 not null;
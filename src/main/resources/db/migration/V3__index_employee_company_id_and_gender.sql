@@ -0,0 +1,3 @@
+create index idx_employee_company_id on employee (company_id);
+
+create index idx_employee_gender on employee (gender);
@@ -0,0 +1,3 @@
+create index idx_employee_name on employee (name);
+
+create index idx_employee_salary on employee (salary);
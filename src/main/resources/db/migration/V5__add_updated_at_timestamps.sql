@@ -0,0 +1,3 @@
+alter table company add column updated_at datetime(6) default current_timestamp(6) not null;
+
+alter table employee add column updated_at datetime(6) default current_timestamp(6) not null;
@@ -0,0 +1,21 @@
+create table change_sequence
+(
+    id                int    not null,
+    last_value        bigint not null,
+    compacted_through bigint not null,
+    primary key (id)
+);
+
+insert into change_sequence (id, last_value, compacted_through) values (1, 0, 0);
+
+create table change_event
+(
+    sequence    bigint      not null,
+    entity_type varchar(16) not null,
+    entity_id   bigint,
+    operation   varchar(16) not null,
+    created_at  datetime(6) not null,
+    primary key (sequence)
+);
+
+create index idx_change_event_created_at on change_event (created_at);
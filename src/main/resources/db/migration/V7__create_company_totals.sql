@@ -0,0 +1,15 @@
+-- headcount and payroll per company, spread over a few slot rows so concurrent writers rarely wait on the same row lock
+create table company_totals
+(
+    company_id bigint  not null,
+    slot       integer not null,
+    headcount  bigint  not null,
+    payroll    bigint  not null,
+    primary key (company_id, slot)
+);
+
+insert into company_totals (company_id, slot, headcount, payroll)
+select company_id, 0, count(*), coalesce(sum(salary), 0)
+from employee
+where company_id is not null
+group by company_id;
@@ -0,0 +1,25 @@
+-- writers append to change_outbox without any shared lock; the relay moves committed rows into
+-- change_event and is the only transaction that locks the change_sequence row
+create table change_outbox
+(
+    id          bigint      not null auto_increment,
+    entity_type varchar(16) not null,
+    entity_id   bigint,
+    operation   varchar(16) not null,
+    created_at  datetime(6) not null,
+    primary key (id)
+);
+
+-- compaction keeps its mark on its own row, so it never waits for the relay either
+create table change_compaction
+(
+    id                int    not null,
+    compacted_through bigint not null,
+    primary key (id)
+);
+
+insert into change_compaction (id, compacted_through)
+select id, compacted_through
+from change_sequence;
+
+alter table change_sequence drop column compacted_through;
@@ -0,0 +1,165 @@
+package com.afs.restapi.apiTest;
+
+import com.afs.restapi.entity.Company;
+import com.afs.restapi.entity.Employee;
+import com.afs.restapi.service.ChangeEventService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class ChangeApiTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ChangeEventService changeEventService;
+
+    @Test
+    void should_return_employee_changes_in_sequence_order_when_get_changes_given_since() throws Exception {
+        long since = relayAndFindLastSequence();
+        Long id = createEmployee();
+        mockMvc.perform(put("/employees/{id}", id)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"salary\": 9500}"))
+                .andExpect(MockMvcResultMatchers.status().is(204));
+        mockMvc.perform(delete("/employees/{id}", id))
+                .andExpect(MockMvcResultMatchers.status().is(204));
+        changeEventService.relay();
+
+        MvcResult mvcResult = mockMvc.perform(get("/changes")
+                        .param("since", String.valueOf(since))
+                        .param("waitSeconds", "0"))
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(MockMvcResultMatchers.status().is(200))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.events.length()").value(3))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.events[0].sequence").value(since + 1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.events[0].entityType").value("EMPLOYEE"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.events[0].entityId").value(id))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.events[0].operation").value("CREATED"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.events[1].operation").value("UPDATED"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.events[2].operation").value("DELETED"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.next").value(since + 3));
+    }
+
+    @Test
+    void should_complete_a_waiting_request_when_a_change_is_committed() throws Exception {
+        long since = relayAndFindLastSequence();
+        MvcResult mvcResult = mockMvc.perform(get("/changes")
+                        .param("since", String.valueOf(since))
+                        .param("waitSeconds", "10"))
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(post("/companies")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(new ObjectMapper().writeValueAsString(new Company(null, "OOCL"))))
+                .andExpect(MockMvcResultMatchers.status().is(201));
+
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(MockMvcResultMatchers.status().is(200))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.events.length()").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.events[0].entityType").value("COMPANY"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.events[0].operation").value("CREATED"));
+    }
+
+    @Test
+    void should_report_batch_inserts_without_ids_when_get_changes() throws Exception {
+        long since = relayAndFindLastSequence();
+        mockMvc.perform(post("/employees/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(new ObjectMapper().writeValueAsString(new Employee[]{
+                                new Employee(null, "Anna", 25, "Female", 7000),
+                                new Employee(null, "Ben", 31, "Male", 7500)})))
+                .andExpect(MockMvcResultMatchers.status().is(200));
+        changeEventService.relay();
+
+        MvcResult mvcResult = mockMvc.perform(get("/changes")
+                        .param("since", String.valueOf(since))
+                        .param("waitSeconds", "0"))
+                .andReturn();
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.events.length()").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.events[0].operation").value("BATCH_CREATED"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.events[0].entityId").doesNotExist());
+    }
+
+    @Test
+    void should_return_gone_when_get_changes_given_since_before_compacted_events() throws Exception {
+        createEmployee();
+        changeEventService.relay();
+
+        Assertions.assertTrue(changeEventService.compactBefore(Instant.now().plusSeconds(1)) > 0);
+
+        mockMvc.perform(get("/changes").param("since", "0"))
+                .andExpect(MockMvcResultMatchers.status().is(410));
+        mockMvc.perform(get("/changes")
+                        .param("since", String.valueOf(changeEventService.findLastSequence()))
+                        .param("waitSeconds", "0"))
+                .andExpect(MockMvcResultMatchers.request().asyncStarted());
+    }
+
+    @Test
+    void should_number_committed_events_without_gaps_when_writers_run_concurrently() throws Exception {
+        long since = relayAndFindLastSequence();
+        int writers = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(writers);
+        try {
+            List<Future<Long>> ids = new ArrayList<>();
+            for (int i = 0; i < writers; i++) {
+                ids.add(executor.submit(this::createEmployee));
+            }
+            for (Future<Long> id : ids) {
+                id.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        changeEventService.relay();
+
+        MvcResult mvcResult = mockMvc.perform(get("/changes")
+                        .param("since", String.valueOf(since))
+                        .param("waitSeconds", "0"))
+                .andReturn();
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.events.length()").value(writers))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.events[0].sequence").value(since + 1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.next").value(since + writers));
+    }
+
+    private long relayAndFindLastSequence() {
+        // events of earlier tests may still be waiting in the outbox
+        changeEventService.relay();
+        return changeEventService.findLastSequence();
+    }
+
+    private Long createEmployee() throws Exception {
+        String response = mockMvc.perform(post("/employees")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(new ObjectMapper().writeValueAsString(new Employee(null, "Lily", 20, "Female", 8000))))
+                .andExpect(MockMvcResultMatchers.status().is(201))
+                .andReturn().getResponse().getContentAsString();
+        return new ObjectMapper().readValue(response, Employee.class).getId();
+    }
+}
@@ -4,7 +4,10 @@ import com.afs.restapi.entity.Company;
 import com.afs.restapi.entity.Employee;
 import com.afs.restapi.repository.CompanyJpaRepository;
 import com.afs.restapi.repository.EmployeeJpaRepository;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -13,8 +16,13 @@ import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMock
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 
+import javax.persistence.EntityManagerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -33,6 +41,9 @@ class CompanyApiTest {
     @Autowired
     private EmployeeJpaRepository employeeJpaRepository;
 
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
     @BeforeEach
     void setUp() {
         companyJpaRepository.deleteAll();
@@ -70,6 +81,29 @@ class CompanyApiTest {
         assertTrue(companyJpaRepository.findById(savedCompany.getId()).isEmpty());
     }
 
+    @Test
+    void should_delete_company_and_its_employees_when_delete_given_company_id() throws Exception {
+        Company savedCompany = companyJpaRepository.save(getCompany1());
+        employeeJpaRepository.save(getEmployee(savedCompany));
+        employeeJpaRepository.save(getEmployee(savedCompany));
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        mockMvc.perform(delete("/companies/{id}", savedCompany.getId()))
+                .andExpect(MockMvcResultMatchers.status().is(204));
+
+        Assertions.assertEquals(0, statistics.getEntityLoadCount());
+        Assertions.assertEquals(0, statistics.getCollectionLoadCount());
+        assertTrue(companyJpaRepository.findById(savedCompany.getId()).isEmpty());
+        assertTrue(employeeJpaRepository.findAllByCompanyIdOrderByIdAsc(savedCompany.getId()).isEmpty());
+    }
+
+    @Test
+    void should_return_not_found_when_delete_given_nonexistent_company_id() throws Exception {
+        mockMvc.perform(delete("/companies/{id}", 999999L))
+                .andExpect(MockMvcResultMatchers.status().is(404));
+    }
+
     @Test
     void should_return_created_company_when_post_given_company() throws Exception {
         Company company = getCompany1();
@@ -84,6 +118,20 @@ class CompanyApiTest {
                 .andExpect(MockMvcResultMatchers.jsonPath("$.name").value(company.getName()));
     }
 
+    @Test
+    void should_insert_companies_when_post_batch_given_company_array() throws Exception {
+        List<Company> companies = List.of(getCompany1(), getCompany2(), getCompany3());
+
+        mockMvc.perform(post("/companies/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(new ObjectMapper().writeValueAsString(companies)))
+                .andExpect(MockMvcResultMatchers.status().is(200))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.created").value(3))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.failures.length()").value(0));
+
+        Assertions.assertEquals(3, companyJpaRepository.count());
+    }
+
     @Test
     void should_return_companies_when_get_companies() throws Exception {
         Company company = getCompany1();
@@ -96,6 +144,42 @@ class CompanyApiTest {
                 .andExpect(MockMvcResultMatchers.jsonPath("$[0].name").value(company.getName()));
     }
 
+    @Test
+    void should_load_companies_with_employees_in_two_statements_when_get_companies() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            Company savedCompany = companyJpaRepository.save(getCompany1());
+            employeeJpaRepository.save(getEmployee(savedCompany));
+            employeeJpaRepository.save(getEmployee(savedCompany));
+        }
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        mockMvc.perform(get("/companies"))
+                .andExpect(MockMvcResultMatchers.status().is(200))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(5))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].employees.length()").value(2));
+
+        Assertions.assertEquals(2, statistics.getPrepareStatementCount());
+        Assertions.assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void should_return_companies_without_employees_when_get_given_includeEmployees_false() throws Exception {
+        Company savedCompany = companyJpaRepository.save(getCompany1());
+        employeeJpaRepository.save(getEmployee(savedCompany));
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        mockMvc.perform(get("/companies").param("includeEmployees", "false"))
+                .andExpect(MockMvcResultMatchers.status().is(200))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].id").value(savedCompany.getId()))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].employees").doesNotExist());
+
+        Assertions.assertEquals(1, statistics.getPrepareStatementCount());
+        Assertions.assertEquals(0, statistics.getEntityLoadCount());
+    }
+
     @Test
     void should_return_list_of_companies_when_get_given_pageNumber_and_pageSize() throws Exception {
         Company company1 = getCompany1();
@@ -117,6 +201,31 @@ class CompanyApiTest {
         ;
     }
 
+    @Test
+    void should_return_companies_after_cursor_when_get_given_cursor_and_pageSize() throws Exception {
+        Company savedCompany1 = companyJpaRepository.save(getCompany1());
+        Company savedCompany2 = companyJpaRepository.save(getCompany2());
+        Company savedCompany3 = companyJpaRepository.save(getCompany3());
+
+        String firstPage = mockMvc.perform(get("/companies")
+                        .param("pageSize", "2"))
+                .andExpect(MockMvcResultMatchers.status().is(200))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.content.length()").value(2))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.content[0].id").value(savedCompany1.getId()))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.content[1].id").value(savedCompany2.getId()))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.nextCursor").isNotEmpty())
+                .andReturn().getResponse().getContentAsString();
+        String nextCursor = new ObjectMapper().readTree(firstPage).get("nextCursor").asText();
+
+        mockMvc.perform(get("/companies")
+                        .param("cursor", nextCursor)
+                        .param("pageSize", "2"))
+                .andExpect(MockMvcResultMatchers.status().is(200))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.content.length()").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.content[0].id").value(savedCompany3.getId()))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.nextCursor").isEmpty());
+    }
+
     @Test
     void should_return_company_when_get_given_company_id() throws Exception {
         Company company = getCompany1();
@@ -136,6 +245,46 @@ class CompanyApiTest {
                 .andExpect(MockMvcResultMatchers.jsonPath("$.employees[0].salary").value(employee.getSalary()));
     }
 
+    @Test
+    void should_return_not_modified_without_loading_company_when_get_given_current_etag() throws Exception {
+        Company savedCompany = companyJpaRepository.save(getCompany1());
+        employeeJpaRepository.save(getEmployee(savedCompany));
+
+        String eTag = mockMvc.perform(get("/companies/{id}", savedCompany.getId()))
+                .andExpect(MockMvcResultMatchers.status().is(200))
+                .andExpect(MockMvcResultMatchers.header().exists("ETag"))
+                .andReturn().getResponse().getHeader("ETag");
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        mockMvc.perform(get("/companies/{id}", savedCompany.getId()).header("If-None-Match", eTag))
+                .andExpect(MockMvcResultMatchers.status().is(304))
+                .andExpect(MockMvcResultMatchers.content().string(""));
+        Assertions.assertEquals(0, statistics.getEntityLoadCount());
+
+        mockMvc.perform(post("/employees")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(new ObjectMapper().writeValueAsString(getEmployee(savedCompany))))
+                .andExpect(MockMvcResultMatchers.status().is(201));
+
+        mockMvc.perform(get("/companies/{id}", savedCompany.getId()).header("If-None-Match", eTag))
+                .andExpect(MockMvcResultMatchers.status().is(200))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.employees.length()").value(2));
+    }
+
+    @Test
+    void should_accept_company_etag_as_if_match_when_put_given_current_etag() throws Exception {
+        Company savedCompany = companyJpaRepository.save(getCompany1());
+        String eTag = mockMvc.perform(get("/companies/{id}", savedCompany.getId()))
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(put("/companies/{id}", savedCompany.getId())
+                        .header("If-Match", eTag)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(new ObjectMapper().writeValueAsString(getCompany2())))
+                .andExpect(MockMvcResultMatchers.status().is(204));
+    }
+
     @Test
     void should_return_employees_when_get_employees_given_company_id() throws Exception {
         Company company = getCompany1();
@@ -153,6 +302,97 @@ class CompanyApiTest {
                 .andExpect(MockMvcResultMatchers.jsonPath("$[0].salary").value(employee.getSalary()));
     }
 
+    @Test
+    void should_serve_company_employees_from_second_level_cache_until_employee_created() throws Exception {
+        Company savedCompany = companyJpaRepository.save(getCompany1());
+        Employee savedEmployee = employeeJpaRepository.save(getEmployee(savedCompany));
+        mockMvc.perform(get("/companies/{companyId}/employees", savedCompany.getId()))
+                .andExpect(MockMvcResultMatchers.status().is(200));
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        mockMvc.perform(get("/companies/{companyId}/employees", savedCompany.getId()))
+                .andExpect(MockMvcResultMatchers.status().is(200))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(1));
+        Assertions.assertEquals(0, statistics.getPrepareStatementCount());
+        Assertions.assertEquals(1, statistics.getQueryCacheHitCount());
+
+        mockMvc.perform(post("/employees/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(new ObjectMapper().writeValueAsString(List.of(getEmployee(savedCompany)))))
+                .andExpect(MockMvcResultMatchers.status().is(200));
+
+        mockMvc.perform(get("/companies/{companyId}/employees", savedCompany.getId()))
+                .andExpect(MockMvcResultMatchers.status().is(200))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(2))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].id").value(savedEmployee.getId()));
+    }
+
+    @Test
+    void should_return_statistics_computed_in_database_when_get_company_stats() throws Exception {
+        Company savedCompany = companyJpaRepository.save(getCompany1());
+        Company emptyCompany = companyJpaRepository.save(getCompany2());
+        employeeJpaRepository.save(getEmployee(savedCompany));
+        Employee femaleEmployee = getEmployee(savedCompany);
+        femaleEmployee.setGender("Female");
+        femaleEmployee.setSalary(20000);
+        employeeJpaRepository.save(femaleEmployee);
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        mockMvc.perform(get("/companies/stats"))
+                .andExpect(MockMvcResultMatchers.status().is(200))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(2))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].companyId").value(savedCompany.getId()))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].headcount").value(2))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].averageSalary").value(15000.0))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].minSalary").value(10000))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].maxSalary").value(20000))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].maleCount").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].femaleCount").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[1].companyId").value(emptyCompany.getId()))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[1].headcount").value(0))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[1].averageSalary").doesNotExist());
+        Assertions.assertEquals(0, statistics.getEntityLoadCount());
+
+        mockMvc.perform(get("/companies/{id}/stats", emptyCompany.getId()))
+                .andExpect(MockMvcResultMatchers.status().is(200))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.headcount").value(0));
+        mockMvc.perform(get("/companies/{id}/stats", 999999L))
+                .andExpect(MockMvcResultMatchers.status().is(404));
+    }
+
+    @Test
+    void should_group_employees_by_company_in_request_order_when_get_employees_given_company_ids() throws Exception {
+        Company savedCompany1 = companyJpaRepository.save(getCompany1());
+        Company savedCompany2 = companyJpaRepository.save(getCompany2());
+        Company savedCompany3 = companyJpaRepository.save(getCompany3());
+        Employee firstEmployee = employeeJpaRepository.save(getEmployee(savedCompany1));
+        Employee secondEmployee = employeeJpaRepository.save(getEmployee(savedCompany1));
+        employeeJpaRepository.save(getEmployee(savedCompany2));
+        String ids = savedCompany2.getId() + "," + savedCompany1.getId() + "," + savedCompany3.getId()
+                + ",999999," + savedCompany1.getId();
+
+        MvcResult mvcResult = mockMvc.perform(get("/companies/employees").param("ids", ids))
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(MockMvcResultMatchers.status().is(200));
+
+        JsonNode groups = new ObjectMapper().readTree(mvcResult.getResponse().getContentAsString());
+        List<String> companyIds = new ArrayList<>();
+        groups.fieldNames().forEachRemaining(companyIds::add);
+        Assertions.assertEquals(List.of(String.valueOf(savedCompany2.getId()), String.valueOf(savedCompany1.getId()),
+                String.valueOf(savedCompany3.getId()), "999999"), companyIds);
+        JsonNode company1Employees = groups.get(String.valueOf(savedCompany1.getId()));
+        Assertions.assertEquals(2, company1Employees.size());
+        Assertions.assertEquals(firstEmployee.getId(), company1Employees.get(0).get("id").asLong());
+        Assertions.assertEquals(secondEmployee.getId(), company1Employees.get(1).get("id").asLong());
+        Assertions.assertEquals(1, groups.get(String.valueOf(savedCompany2.getId())).size());
+        Assertions.assertEquals(0, groups.get(String.valueOf(savedCompany3.getId())).size());
+        Assertions.assertEquals(0, groups.get("999999").size());
+    }
+
     private static Employee getEmployee(Company company) {
         Employee employee = new Employee();
         employee.setName("Bob");
@@ -0,0 +1,205 @@
+package com.afs.restapi.apiTest;
+
+import com.afs.restapi.entity.Company;
+import com.afs.restapi.entity.Employee;
+import com.afs.restapi.repository.CompanyJpaRepository;
+import com.afs.restapi.repository.EmployeeJpaRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class CompanyTotalsApiTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private EmployeeJpaRepository employeeJpaRepository;
+
+    @Autowired
+    private CompanyJpaRepository companyJpaRepository;
+
+    private Company company;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        employeeJpaRepository.deleteAll();
+        companyJpaRepository.deleteAll();
+        company = companyJpaRepository.save(new Company(null, "OOCL"));
+        // other tests write through the repositories and leave the totals behind
+        mockMvc.perform(post("/companies/totals/rebuild"))
+                .andExpect(MockMvcResultMatchers.status().is(200))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.consistent").value(true));
+    }
+
+    @Test
+    void should_keep_totals_in_step_with_employee_writes_when_get_company_totals() throws Exception {
+        Long lilyId = createEmployee("Lily", 8000);
+        Long tomId = createEmployee("Tom", 9000);
+        mockMvc.perform(put("/employees/{id}", lilyId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"salary\": 8500}"))
+                .andExpect(MockMvcResultMatchers.status().is(204));
+        mockMvc.perform(put("/employees/{id}", tomId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"age\": 31}"))
+                .andExpect(MockMvcResultMatchers.status().is(204));
+        mockMvc.perform(delete("/employees/{id}", tomId))
+                .andExpect(MockMvcResultMatchers.status().is(204));
+        Employee anna = new Employee(null, "Anna", 25, "Female", 7000);
+        anna.setCompanyId(company.getId());
+        mockMvc.perform(post("/employees/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(new ObjectMapper().writeValueAsString(new Employee[]{anna})))
+                .andExpect(MockMvcResultMatchers.status().is(200));
+
+        mockMvc.perform(get("/companies/{id}/totals", company.getId()))
+                .andExpect(MockMvcResultMatchers.status().is(200))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.companyId").value(company.getId()))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.headcount").value(2))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.payroll").value(15500));
+        mockMvc.perform(get("/companies/totals"))
+                .andExpect(MockMvcResultMatchers.status().is(200))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].headcount").value(2));
+        mockMvc.perform(get("/companies/totals/verify"))
+                .andExpect(MockMvcResultMatchers.status().is(200))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.consistent").value(true));
+    }
+
+    @Test
+    void should_report_and_repair_drift_when_verify_and_rebuild_company_totals() throws Exception {
+        Employee lily = new Employee(null, "Lily", 20, "Female", 8000);
+        lily.setCompanyId(company.getId());
+        // bypasses the services, so the totals do not see it
+        employeeJpaRepository.save(lily);
+
+        mockMvc.perform(get("/companies/totals/verify"))
+                .andExpect(MockMvcResultMatchers.status().is(200))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.consistent").value(false))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.mismatches[0].expected.headcount").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.mismatches[0].expected.payroll").value(8000))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.mismatches[0].actual.headcount").value(0));
+
+        mockMvc.perform(post("/companies/totals/rebuild"))
+                .andExpect(MockMvcResultMatchers.status().is(200))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.consistent").value(true));
+        mockMvc.perform(get("/companies/{id}/totals", company.getId()))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.headcount").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.payroll").value(8000));
+    }
+
+    @Test
+    void should_return_empty_totals_or_not_found_when_get_company_totals_given_no_employees() throws Exception {
+        mockMvc.perform(get("/companies/{id}/totals", company.getId()))
+                .andExpect(MockMvcResultMatchers.status().is(200))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.headcount").value(0))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.payroll").value(0));
+        mockMvc.perform(get("/companies/{id}/totals", company.getId() + 1000))
+                .andExpect(MockMvcResultMatchers.status().is(404));
+    }
+
+    @Test
+    void should_keep_totals_consistent_when_batch_insert_and_single_creates_run_concurrently() throws Exception {
+        int batchSize = 200;
+        int singleCreates = 20;
+        Employee[] batch = new Employee[batchSize];
+        for (int i = 0; i < batchSize; i++) {
+            batch[i] = new Employee(null, "Batch" + i, 25, "Female", 5000);
+            batch[i].setCompanyId(company.getId());
+        }
+        String batchRequest = new ObjectMapper().writeValueAsString(batch);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> writes = new ArrayList<>();
+            writes.add(executor.submit(() -> mockMvc.perform(post("/employees/batch")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(batchRequest))
+                    .andExpect(MockMvcResultMatchers.status().is(200))
+                    .andExpect(MockMvcResultMatchers.jsonPath("$.created").value(batchSize))
+                    .andExpect(MockMvcResultMatchers.jsonPath("$.failures.length()").value(0))));
+            for (int i = 0; i < singleCreates; i++) {
+                String name = "Single" + i;
+                writes.add(executor.submit(() -> createEmployee(name, 6000)));
+            }
+            for (Future<?> write : writes) {
+                write.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        mockMvc.perform(get("/companies/{id}/totals", company.getId()))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.headcount").value(batchSize + singleCreates))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.payroll").value(batchSize * 5000 + singleCreates * 6000));
+        mockMvc.perform(get("/companies/totals/verify"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.consistent").value(true));
+    }
+
+    @Test
+    void should_keep_totals_consistent_when_rebuild_runs_alongside_creates_and_updates() throws Exception {
+        // each round updates one existing employee and creates another one
+        int rounds = 10;
+        int rebuilds = 5;
+        List<Long> existingIds = new ArrayList<>();
+        for (int i = 0; i < rounds; i++) {
+            existingIds.add(createEmployee("Existing" + i, 5000));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> writes = new ArrayList<>();
+            for (int i = 0; i < rounds; i++) {
+                Long id = existingIds.get(i);
+                String name = "Created" + i;
+                writes.add(executor.submit(() -> mockMvc.perform(put("/employees/{id}", id)
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{\"salary\": 5500}"))
+                        .andExpect(MockMvcResultMatchers.status().is(204))));
+                writes.add(executor.submit(() -> createEmployee(name, 6000)));
+                if (i < rebuilds) {
+                    writes.add(executor.submit(() -> mockMvc.perform(post("/companies/totals/rebuild"))
+                            .andExpect(MockMvcResultMatchers.status().is(200))));
+                }
+            }
+            for (Future<?> write : writes) {
+                write.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        mockMvc.perform(get("/companies/{id}/totals", company.getId()))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.headcount").value(rounds * 2))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.payroll").value(rounds * 5500 + rounds * 6000));
+        mockMvc.perform(get("/companies/totals/verify"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.consistent").value(true));
+    }
+
+    private Long createEmployee(String name, int salary) throws Exception {
+        Employee employee = new Employee(null, name, 30, "Male", salary);
+        employee.setCompanyId(company.getId());
+        String response = mockMvc.perform(post("/employees")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(new ObjectMapper().writeValueAsString(employee)))
+                .andExpect(MockMvcResultMatchers.status().is(201))
+                .andReturn().getResponse().getContentAsString();
+        return new ObjectMapper().readValue(response, Employee.class).getId();
+    }
+}
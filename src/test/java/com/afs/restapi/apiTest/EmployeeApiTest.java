@@ -2,18 +2,25 @@ package com.afs.restapi.apiTest;
 
 import com.afs.restapi.entity.Employee;
 import com.afs.restapi.repository.EmployeeJpaRepository;
+import com.afs.restapi.service.EmployeeUpdateQueue;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -28,6 +35,12 @@ class EmployeeApiTest {
     @Autowired
     private EmployeeJpaRepository employeeJpaRepository;
 
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private EmployeeUpdateQueue employeeUpdateQueue;
+
     @BeforeEach
     void setUp() {
         employeeJpaRepository.deleteAll();
@@ -56,6 +69,85 @@ class EmployeeApiTest {
         Assertions.assertEquals(previousEmployee.getGender(), updatedEmployee.getGender());
     }
 
+    @Test
+    void should_reject_update_when_put_given_stale_if_match_version() throws Exception {
+        Employee savedEmployee = employeeJpaRepository.save(getEmployeeBob());
+        String updatedEmployeeJson = new ObjectMapper().writeValueAsString(new Employee(null, null, 30, null, 20000));
+
+        mockMvc.perform(put("/employees/{id}", savedEmployee.getId())
+                        .header("If-Match", "\"" + savedEmployee.getVersion() + "\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(updatedEmployeeJson))
+                .andExpect(MockMvcResultMatchers.status().is(204));
+        mockMvc.perform(put("/employees/{id}", savedEmployee.getId())
+                        .header("If-Match", "\"" + savedEmployee.getVersion() + "\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(updatedEmployeeJson))
+                .andExpect(MockMvcResultMatchers.status().is(412));
+
+        Employee updatedEmployee = employeeJpaRepository.findById(savedEmployee.getId()).orElseThrow();
+        Assertions.assertEquals(savedEmployee.getVersion() + 1, updatedEmployee.getVersion());
+    }
+
+    @Test
+    void should_accept_and_coalesce_updates_when_put_given_prefer_respond_async() throws Exception {
+        Employee savedEmployee = employeeJpaRepository.save(getEmployeeBob());
+
+        String firstSubmission = mockMvc.perform(put("/employees/{id}", savedEmployee.getId())
+                        .header("Prefer", "respond-async")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(new ObjectMapper().writeValueAsString(new Employee(null, null, 30, null, 20000))))
+                .andExpect(MockMvcResultMatchers.status().is(202))
+                .andExpect(MockMvcResultMatchers.header().exists("Location"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.status").value("QUEUED"))
+                .andReturn().getResponse().getHeader("Location");
+        String secondSubmission = mockMvc.perform(put("/employees/{id}", savedEmployee.getId())
+                        .header("Prefer", "wait=5, Respond-Async")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(new ObjectMapper().writeValueAsString(new Employee(null, null, null, null, 25000))))
+                .andExpect(MockMvcResultMatchers.status().is(202))
+                .andReturn().getResponse().getHeader("Location");
+
+        employeeUpdateQueue.flush();
+
+        mockMvc.perform(get(firstSubmission))
+                .andExpect(MockMvcResultMatchers.status().is(200))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.status").value("APPLIED"));
+        mockMvc.perform(get(secondSubmission))
+                .andExpect(MockMvcResultMatchers.status().is(200))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.status").value("APPLIED"));
+        Employee updatedEmployee = employeeJpaRepository.findById(savedEmployee.getId()).orElseThrow();
+        Assertions.assertEquals(30, updatedEmployee.getAge());
+        Assertions.assertEquals(25000, updatedEmployee.getSalary());
+        Assertions.assertEquals(savedEmployee.getVersion() + 1, updatedEmployee.getVersion());
+    }
+
+    @Test
+    void should_report_not_found_when_get_submission_given_async_put_of_nonexistent_employee() throws Exception {
+        String submission = mockMvc.perform(put("/employees/{id}", 999999L)
+                        .header("Prefer", "respond-async")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(new ObjectMapper().writeValueAsString(new Employee(null, null, 30, null, 20000))))
+                .andExpect(MockMvcResultMatchers.status().is(202))
+                .andReturn().getResponse().getHeader("Location");
+
+        employeeUpdateQueue.flush();
+
+        mockMvc.perform(get(submission))
+                .andExpect(MockMvcResultMatchers.status().is(200))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.status").value("NOT_FOUND"));
+        mockMvc.perform(get("/employees/updates/{submissionId}", "unknown"))
+                .andExpect(MockMvcResultMatchers.status().is(404));
+    }
+
+    @Test
+    void should_return_not_found_when_put_given_nonexistent_employee_id() throws Exception {
+        mockMvc.perform(put("/employees/{id}", 999999L)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(new ObjectMapper().writeValueAsString(getEmployeeBob())))
+                .andExpect(MockMvcResultMatchers.status().is(404));
+    }
+
     @Test
     void should_return_created_employee_when_post_given_employee() throws Exception {
         Employee employee = getEmployeeBob();
@@ -88,6 +180,21 @@ class EmployeeApiTest {
                 .andExpect(MockMvcResultMatchers.jsonPath("$[0].salary").value(employee.getSalary()));
     }
 
+    @Test
+    void should_return_smile_encoded_employees_when_get_employees_given_smile_accept_header() throws Exception {
+        Employee savedEmployee = employeeJpaRepository.save(getEmployeeBob());
+
+        MvcResult result = mockMvc.perform(get("/employees").accept("application/x-jackson-smile"))
+                .andExpect(MockMvcResultMatchers.status().is(200))
+                .andExpect(MockMvcResultMatchers.content().contentType("application/x-jackson-smile"))
+                .andReturn();
+
+        JsonNode employees = new ObjectMapper(new SmileFactory()).readTree(result.getResponse().getContentAsByteArray());
+        Assertions.assertEquals(1, employees.size());
+        Assertions.assertEquals(savedEmployee.getId(), employees.get(0).get("id").asLong());
+        Assertions.assertEquals(savedEmployee.getName(), employees.get(0).get("name").asText());
+    }
+
     @Test
     void should_return_employee_when_get_employee_given_employee_id() throws Exception {
         Employee employee = getEmployeeBob();
@@ -102,6 +209,85 @@ class EmployeeApiTest {
                 .andExpect(MockMvcResultMatchers.jsonPath("$.salary").value(employee.getSalary()));
     }
 
+    @Test
+    void should_serve_cached_employee_until_put_when_get_employee_given_employee_id() throws Exception {
+        Employee savedEmployee = employeeJpaRepository.save(getEmployeeBob());
+
+        mockMvc.perform(get("/employees/{id}", savedEmployee.getId()))
+                .andExpect(MockMvcResultMatchers.status().is(200));
+        Assertions.assertNotNull(cacheManager.getCache("employees").get(savedEmployee.getId()));
+
+        Employee employeeUpdateRequest = new Employee(null, null, 30, null, 20000);
+        mockMvc.perform(put("/employees/{id}", savedEmployee.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(new ObjectMapper().writeValueAsString(employeeUpdateRequest)))
+                .andExpect(MockMvcResultMatchers.status().is(204));
+        Assertions.assertNull(cacheManager.getCache("employees").get(savedEmployee.getId()));
+
+        mockMvc.perform(get("/employees/{id}", savedEmployee.getId()))
+                .andExpect(MockMvcResultMatchers.status().is(200))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.salary").value(20000));
+    }
+
+    @Test
+    void should_return_not_modified_until_put_when_get_employee_given_current_etag() throws Exception {
+        Employee savedEmployee = employeeJpaRepository.save(getEmployeeBob());
+
+        String eTag = mockMvc.perform(get("/employees/{id}", savedEmployee.getId()))
+                .andExpect(MockMvcResultMatchers.status().is(200))
+                .andExpect(MockMvcResultMatchers.header().string("ETag", "\"" + savedEmployee.getVersion() + "\""))
+                .andExpect(MockMvcResultMatchers.header().exists("Last-Modified"))
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/employees/{id}", savedEmployee.getId()).header("If-None-Match", eTag))
+                .andExpect(MockMvcResultMatchers.status().is(304))
+                .andExpect(MockMvcResultMatchers.header().string("ETag", eTag))
+                .andExpect(MockMvcResultMatchers.content().string(""));
+
+        mockMvc.perform(put("/employees/{id}", savedEmployee.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(new ObjectMapper().writeValueAsString(new Employee(null, null, 30, null, 20000))))
+                .andExpect(MockMvcResultMatchers.status().is(204));
+
+        mockMvc.perform(get("/employees/{id}", savedEmployee.getId()).header("If-None-Match", eTag))
+                .andExpect(MockMvcResultMatchers.status().is(200))
+                .andExpect(MockMvcResultMatchers.header().string("ETag", "\"" + (savedEmployee.getVersion() + 1) + "\""))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.salary").value(20000));
+    }
+
+    @Test
+    void should_return_not_found_when_get_employee_given_etag_and_nonexistent_employee_id() throws Exception {
+        mockMvc.perform(get("/employees/{id}", 999999L).header("If-None-Match", "\"0\""))
+                .andExpect(MockMvcResultMatchers.status().is(404));
+    }
+
+    @Test
+    void should_return_not_modified_when_get_page_given_current_collection_etag() throws Exception {
+        employeeJpaRepository.save(getEmployeeBob());
+        employeeJpaRepository.save(getEmployeeSusan());
+
+        String eTag = mockMvc.perform(get("/employees")
+                        .param("pageNumber", "1")
+                        .param("pageSize", "2"))
+                .andExpect(MockMvcResultMatchers.status().is(200))
+                .andExpect(MockMvcResultMatchers.header().exists("ETag"))
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/employees")
+                        .param("pageNumber", "1")
+                        .param("pageSize", "2")
+                        .header("If-None-Match", eTag))
+                .andExpect(MockMvcResultMatchers.status().is(304));
+
+        employeeJpaRepository.save(getEmployeeLily());
+        mockMvc.perform(get("/employees")
+                        .param("pageNumber", "1")
+                        .param("pageSize", "3")
+                        .header("If-None-Match", eTag))
+                .andExpect(MockMvcResultMatchers.status().is(200))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(3));
+    }
+
     @Test
     void should_delete_employee_when_delete_given_employee_id() throws Exception {
         Employee employee = getEmployeeBob();
@@ -113,6 +299,53 @@ class EmployeeApiTest {
         assertTrue(employeeJpaRepository.findById(1L).isEmpty());
     }
 
+    @Test
+    void should_return_not_found_until_created_when_get_employee_given_missing_id() throws Exception {
+        Employee savedEmployee = employeeJpaRepository.save(getEmployeeBob());
+        long nextId = savedEmployee.getId() + 1;
+
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(get("/employees/{id}", nextId))
+                    .andExpect(MockMvcResultMatchers.status().is(404))
+                    .andExpect(MockMvcResultMatchers.jsonPath("$.code").value(404))
+                    .andExpect(MockMvcResultMatchers.jsonPath("$.message").value("employee id not found"));
+        }
+        Assertions.assertNotNull(cacheManager.getCache("missingEmployees").get(nextId));
+
+        mockMvc.perform(post("/employees")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(new ObjectMapper().writeValueAsString(getEmployeeSusan())))
+                .andExpect(MockMvcResultMatchers.status().is(201))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.id").value(nextId));
+        mockMvc.perform(get("/employees/{id}", nextId))
+                .andExpect(MockMvcResultMatchers.status().is(200));
+    }
+
+    @Test
+    void should_return_not_found_when_delete_given_nonexistent_employee_id() throws Exception {
+        mockMvc.perform(delete("/employees/{id}", 999999L))
+                .andExpect(MockMvcResultMatchers.status().is(404));
+    }
+
+    @Test
+    void should_delete_existing_employees_when_delete_given_ids() throws Exception {
+        Employee savedBob = employeeJpaRepository.save(getEmployeeBob());
+        Employee savedSusan = employeeJpaRepository.save(getEmployeeSusan());
+        Employee savedLily = employeeJpaRepository.save(getEmployeeLily());
+
+        mockMvc.perform(delete("/employees")
+                        .param("ids", savedBob.getId() + "," + savedSusan.getId() + ",999999"))
+                .andExpect(MockMvcResultMatchers.status().is(200))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.requested").value(3))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.deleted").value(2));
+
+        Assertions.assertEquals(List.of(savedLily.getId()), employeeJpaRepository.findAll().stream()
+                .map(Employee::getId)
+                .collect(Collectors.toList()));
+        mockMvc.perform(delete("/employees").param("ids", String.valueOf(savedBob.getId())))
+                .andExpect(MockMvcResultMatchers.status().is(404));
+    }
+
     @Test
     void should_return_list_of_employees_when_get_given_gender() throws Exception {
         Employee employee = getEmployeeBob();
@@ -154,6 +387,154 @@ class EmployeeApiTest {
                 .andExpect(MockMvcResultMatchers.jsonPath("$[1].salary").value(savedSusan.getSalary()));
     }
 
+    @Test
+    void should_return_filtered_and_sorted_employees_when_get_given_salary_range_and_sort() throws Exception {
+        employeeJpaRepository.save(getEmployeeBob());
+        Employee savedSusan = employeeJpaRepository.save(getEmployeeSusan());
+        Employee savedLily = employeeJpaRepository.save(getEmployeeLily());
+
+        mockMvc.perform(get("/employees")
+                        .param("minSalary", "10500")
+                        .param("gender", "Female")
+                        .param("sort", "salary,desc"))
+                .andExpect(MockMvcResultMatchers.status().is(200))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(2))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].id").value(savedLily.getId()))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[1].id").value(savedSusan.getId()));
+    }
+
+    @Test
+    void should_return_filtered_page_when_get_given_name_prefix_and_pageNumber_and_pageSize() throws Exception {
+        employeeJpaRepository.save(getEmployeeBob());
+        Employee savedSusan = employeeJpaRepository.save(getEmployeeSusan());
+        employeeJpaRepository.save(getEmployeeLily());
+
+        mockMvc.perform(get("/employees")
+                        .param("namePrefix", "Su")
+                        .param("maxAge", "30")
+                        .param("pageNumber", "1")
+                        .param("pageSize", "2"))
+                .andExpect(MockMvcResultMatchers.status().is(200))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].id").value(savedSusan.getId()));
+    }
+
+    @Test
+    void should_return_bad_request_when_get_given_unknown_sort_property() throws Exception {
+        mockMvc.perform(get("/employees").param("sort", "password"))
+                .andExpect(MockMvcResultMatchers.status().is(400));
+    }
+
+    @Test
+    void should_return_employees_after_cursor_when_get_given_cursor_and_pageSize() throws Exception {
+        Employee savedBob = employeeJpaRepository.save(getEmployeeBob());
+        Employee savedSusan = employeeJpaRepository.save(getEmployeeSusan());
+        Employee savedLily = employeeJpaRepository.save(getEmployeeLily());
+
+        String firstPage = mockMvc.perform(get("/employees")
+                        .param("pageSize", "2"))
+                .andExpect(MockMvcResultMatchers.status().is(200))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.content.length()").value(2))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.content[0].id").value(savedBob.getId()))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.content[1].id").value(savedSusan.getId()))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.nextCursor").isNotEmpty())
+                .andReturn().getResponse().getContentAsString();
+        String nextCursor = new ObjectMapper().readTree(firstPage).get("nextCursor").asText();
+
+        mockMvc.perform(get("/employees")
+                        .param("cursor", nextCursor)
+                        .param("pageSize", "2"))
+                .andExpect(MockMvcResultMatchers.status().is(200))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.content.length()").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.content[0].id").value(savedLily.getId()))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.nextCursor").isEmpty());
+    }
+
+    @Test
+    void should_return_bad_request_when_get_given_malformed_cursor() throws Exception {
+        mockMvc.perform(get("/employees")
+                        .param("cursor", "not-a-cursor")
+                        .param("pageSize", "2"))
+                .andExpect(MockMvcResultMatchers.status().is(400));
+    }
+
+    @Test
+    void should_return_bad_request_when_get_given_cursor_and_sort() throws Exception {
+        mockMvc.perform(get("/employees")
+                        .param("pageSize", "2")
+                        .param("sort", "salary,desc"))
+                .andExpect(MockMvcResultMatchers.status().is(400))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.message").value("cannot sort by salary"));
+    }
+
+    @Test
+    void should_return_bad_request_when_get_given_non_positive_pageNumber_or_pageSize() throws Exception {
+        mockMvc.perform(get("/employees")
+                        .param("pageNumber", "0")
+                        .param("pageSize", "2"))
+                .andExpect(MockMvcResultMatchers.status().is(400))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.message").value("pageNumber and pageSize must be positive"));
+        mockMvc.perform(get("/employees")
+                        .param("pageNumber", "1")
+                        .param("pageSize", "0"))
+                .andExpect(MockMvcResultMatchers.status().is(400));
+        mockMvc.perform(get("/employees")
+                        .param("pageSize", "-1"))
+                .andExpect(MockMvcResultMatchers.status().is(400));
+    }
+
+    @Test
+    void should_stream_employees_as_ndjson_when_get_export() throws Exception {
+        Employee savedBob = employeeJpaRepository.save(getEmployeeBob());
+        Employee savedSusan = employeeJpaRepository.save(getEmployeeSusan());
+
+        MvcResult mvcResult = mockMvc.perform(get("/employees/export"))
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(MockMvcResultMatchers.status().is(200));
+
+        String[] lines = mvcResult.getResponse().getContentAsString().split("\n");
+        ObjectMapper objectMapper = new ObjectMapper();
+        Assertions.assertEquals(2, lines.length);
+        Assertions.assertEquals(savedBob.getId(), objectMapper.readTree(lines[0]).get("id").asLong());
+        Assertions.assertEquals(savedSusan.getId(), objectMapper.readTree(lines[1]).get("id").asLong());
+        Assertions.assertEquals(savedSusan.getName(), objectMapper.readTree(lines[1]).get("name").asText());
+    }
+
+    @Test
+    void should_insert_employees_and_report_failed_rows_when_post_batch_given_employee_array() throws Exception {
+        Employee invalidEmployee = getEmployeeLily();
+        invalidEmployee.setName("x".repeat(300));
+        List<Employee> employees = List.of(getEmployeeBob(), invalidEmployee, getEmployeeSusan());
+
+        mockMvc.perform(post("/employees/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(new ObjectMapper().writeValueAsString(employees)))
+                .andExpect(MockMvcResultMatchers.status().is(200))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.created").value(2))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.failures.length()").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.failures[0].index").value(1));
+
+        Assertions.assertEquals(2, employeeJpaRepository.count());
+    }
+
+    @Test
+    void should_insert_employees_when_post_batch_given_ndjson() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+        String ndjson = objectMapper.writeValueAsString(getEmployeeBob()) + "\n"
+                + objectMapper.writeValueAsString(getEmployeeSusan()) + "\n";
+
+        mockMvc.perform(post("/employees/batch")
+                        .contentType("application/x-ndjson")
+                        .content(ndjson))
+                .andExpect(MockMvcResultMatchers.status().is(200))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.created").value(2))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.failures.length()").value(0));
+
+        Assertions.assertEquals(2, employeeJpaRepository.count());
+    }
+
     private static Employee getEmployeeBob() {
         Employee employee = new Employee();
         employee.setName("Bob");
@@ -0,0 +1,101 @@
+package com.afs.restapi.apiTest;
+
+import com.afs.restapi.entity.Company;
+import com.afs.restapi.entity.Employee;
+import com.afs.restapi.repository.CompanyJpaRepository;
+import com.afs.restapi.repository.EmployeeJpaRepository;
+import com.afs.restapi.service.EmployeeSnapshot;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import javax.persistence.EntityManagerFactory;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+
+@SpringBootTest(properties = "app.snapshot.enabled=true")
+@AutoConfigureMockMvc
+class EmployeeSnapshotApiTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private EmployeeJpaRepository employeeJpaRepository;
+
+    @Autowired
+    private CompanyJpaRepository companyJpaRepository;
+
+    @Autowired
+    private EmployeeSnapshot employeeSnapshot;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Company company;
+
+    @BeforeEach
+    void setUp() {
+        employeeJpaRepository.deleteAll();
+        companyJpaRepository.deleteAll();
+        company = companyJpaRepository.save(new Company(null, "OOCL"));
+        Employee lily = new Employee(null, "Lily", 20, "Female", 8000);
+        lily.setCompanyId(company.getId());
+        employeeJpaRepository.save(lily);
+        // the repository writes above bypass the services, so start from a fresh load
+        employeeSnapshot.invalidate();
+        Assertions.assertTrue(employeeSnapshot.rebuild());
+    }
+
+    @Test
+    void should_serve_service_writes_from_the_snapshot_without_sql_when_get_employees() throws Exception {
+        Employee tom = new Employee(null, "Tom", 30, "Male", 9000);
+        tom.setCompanyId(company.getId());
+        String response = mockMvc.perform(post("/employees")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(new ObjectMapper().writeValueAsString(tom)))
+                .andExpect(MockMvcResultMatchers.status().is(201))
+                .andReturn().getResponse().getContentAsString();
+        Long tomId = new ObjectMapper().readValue(response, Employee.class).getId();
+        mockMvc.perform(put("/employees/{id}", tomId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"salary\": 9500}"))
+                .andExpect(MockMvcResultMatchers.status().is(204));
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        mockMvc.perform(get("/employees").param("gender", "Male"))
+                .andExpect(MockMvcResultMatchers.status().is(200))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].name").value("Tom"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].salary").value(9500))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].version").value(1));
+        mockMvc.perform(get("/companies/{id}/employees", company.getId()))
+                .andExpect(MockMvcResultMatchers.status().is(200))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(2));
+
+        Assertions.assertEquals(0, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void should_fall_back_to_the_database_after_a_batch_insert_when_get_employees() throws Exception {
+        mockMvc.perform(post("/employees/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(new ObjectMapper().writeValueAsString(new Employee[]{
+                                new Employee(null, "Anna", 25, "Female", 7000)})))
+                .andExpect(MockMvcResultMatchers.status().is(200));
+
+        mockMvc.perform(get("/employees").param("gender", "Female"))
+                .andExpect(MockMvcResultMatchers.status().is(200))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(2));
+    }
+}
@@ -0,0 +1,36 @@
+package com.afs.restapi.apiTest;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.metrics.AutoConfigureMetrics;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureMetrics
+class MetricsApiTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void should_expose_request_repository_pool_and_hibernate_metrics_when_get_prometheus() throws Exception {
+        mockMvc.perform(get("/employees"))
+                .andExpect(MockMvcResultMatchers.status().is(200));
+
+        mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(MockMvcResultMatchers.status().is(200))
+                .andExpect(MockMvcResultMatchers.content().string(containsString("http_server_requests_seconds_bucket")))
+                .andExpect(MockMvcResultMatchers.content().string(containsString("spring_data_repository_invocations_seconds_bucket")))
+                .andExpect(MockMvcResultMatchers.content().string(containsString("hikaricp_connections_active")))
+                .andExpect(MockMvcResultMatchers.content().string(containsString("hibernate_statements_total")))
+                .andExpect(MockMvcResultMatchers.content().string(containsString("hibernate_second_level_cache_requests_total")))
+                .andExpect(MockMvcResultMatchers.content().string(containsString("hibernate_cache_query_requests_total")));
+    }
+}
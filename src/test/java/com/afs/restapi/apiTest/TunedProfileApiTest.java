@@ -0,0 +1,91 @@
+package com.afs.restapi.apiTest;
+
+import com.afs.restapi.entity.Employee;
+import com.afs.restapi.repository.CompanyJpaRepository;
+import com.afs.restapi.repository.EmployeeJpaRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("tuned")
+class TunedProfileApiTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private EmployeeJpaRepository employeeJpaRepository;
+
+    @Autowired
+    private CompanyJpaRepository companyJpaRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @BeforeEach
+    void setUp() {
+        companyJpaRepository.deleteAll();
+        employeeJpaRepository.deleteAll();
+    }
+
+    @Test
+    void should_apply_pool_and_hibernate_batching_settings_when_tuned_profile_is_active() {
+        HikariDataSource hikariDataSource = (HikariDataSource) dataSource;
+        Assertions.assertEquals(10, hikariDataSource.getMaximumPoolSize());
+        Assertions.assertEquals(10, hikariDataSource.getMinimumIdle());
+
+        Map<String, Object> properties = entityManagerFactory.getProperties();
+        Assertions.assertEquals("50", String.valueOf(properties.get("hibernate.jdbc.batch_size")));
+        Assertions.assertEquals("true", String.valueOf(properties.get("hibernate.order_inserts")));
+        Assertions.assertEquals("true", String.valueOf(properties.get("hibernate.order_updates")));
+        Assertions.assertEquals("2048", String.valueOf(properties.get("hibernate.query.plan_cache_max_size")));
+    }
+
+    @Test
+    void should_insert_update_and_page_employees_when_tuned_profile_is_active() throws Exception {
+        List<Employee> employees = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            employees.add(new Employee(null, "employee-" + i, 20 + i % 40, i % 2 == 0 ? "Male" : "Female", 5000 + i));
+        }
+        mockMvc.perform(post("/employees/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(new ObjectMapper().writeValueAsString(employees)))
+                .andExpect(MockMvcResultMatchers.status().is(200))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.created").value(120));
+
+        Employee firstEmployee = employeeJpaRepository.findAll().get(0);
+        mockMvc.perform(put("/employees/{id}", firstEmployee.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(new ObjectMapper().writeValueAsString(new Employee(null, null, 30, null, 20000))))
+                .andExpect(MockMvcResultMatchers.status().is(204));
+
+        mockMvc.perform(get("/employees")
+                        .param("pageNumber", "2")
+                        .param("pageSize", "50"))
+                .andExpect(MockMvcResultMatchers.status().is(200))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(50));
+        Assertions.assertEquals(20000, employeeJpaRepository.findById(firstEmployee.getId()).orElseThrow().getSalary());
+    }
+}
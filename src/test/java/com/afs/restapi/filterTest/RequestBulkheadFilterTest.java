@@ -0,0 +1,97 @@
+package com.afs.restapi.filterTest;
+
+import com.afs.restapi.filter.ExecutionMode;
+import com.afs.restapi.filter.RequestBulkheadFilter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.FilterChain;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RequestBulkheadFilterTest {
+
+    @Test
+    void should_shed_request_with_503_when_all_slots_are_busy_given_bounded_mode() throws Exception {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        RequestBulkheadFilter filter = new RequestBulkheadFilter(ExecutionMode.BOUNDED, 1, 0,
+                Duration.ofMillis(10), new ObjectMapper(), meterRegistry);
+        CountDownLatch requestStarted = new CountDownLatch(1);
+        CountDownLatch releaseRequest = new CountDownLatch(1);
+        FilterChain blockingChain = (request, response) -> {
+            requestStarted.countDown();
+            try {
+                releaseRequest.await();
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            MockHttpServletResponse firstResponse = new MockHttpServletResponse();
+            Future<?> firstRequest = executor.submit(() -> {
+                filter.doFilter(new MockHttpServletRequest("GET", "/employees"), firstResponse, blockingChain);
+                return null;
+            });
+            assertTrue(requestStarted.await(5, TimeUnit.SECONDS));
+
+            MockHttpServletResponse shedResponse = new MockHttpServletResponse();
+            filter.doFilter(new MockHttpServletRequest("GET", "/employees"), shedResponse, new MockFilterChain());
+
+            assertEquals(503, shedResponse.getStatus());
+            assertEquals("1", shedResponse.getHeader("Retry-After"));
+            assertEquals(1.0, meterRegistry.get("http.server.requests.shed").counter().count());
+
+            releaseRequest.countDown();
+            firstRequest.get(5, TimeUnit.SECONDS);
+            assertEquals(200, firstResponse.getStatus());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void should_pass_request_through_when_slots_are_free_given_bounded_mode() throws Exception {
+        RequestBulkheadFilter filter = new RequestBulkheadFilter(ExecutionMode.BOUNDED, 1, 0,
+                Duration.ofMillis(10), new ObjectMapper(), new SimpleMeterRegistry());
+        MockFilterChain chain = new MockFilterChain();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/companies"), response, chain);
+
+        assertEquals(200, response.getStatus());
+        assertTrue(chain.getRequest() != null);
+    }
+
+    @Test
+    void should_hold_slot_until_async_request_completes_given_bounded_mode() throws Exception {
+        RequestBulkheadFilter filter = new RequestBulkheadFilter(ExecutionMode.BOUNDED, 1, 0,
+                Duration.ofMillis(10), new ObjectMapper(), new SimpleMeterRegistry());
+        MockHttpServletRequest streamingRequest = new MockHttpServletRequest("GET", "/employees/export");
+        streamingRequest.setAsyncSupported(true);
+        FilterChain asyncChain = (request, response) -> request.startAsync();
+
+        filter.doFilter(streamingRequest, new MockHttpServletResponse(), asyncChain);
+
+        MockHttpServletResponse shedResponse = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/employees"), shedResponse, new MockFilterChain());
+        assertEquals(503, shedResponse.getStatus());
+
+        streamingRequest.getAsyncContext().complete();
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/employees"), response, new MockFilterChain());
+        assertEquals(200, response.getStatus());
+    }
+}
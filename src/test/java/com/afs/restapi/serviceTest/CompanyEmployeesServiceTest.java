@@ -0,0 +1,61 @@
+package com.afs.restapi.serviceTest;
+
+import com.afs.restapi.dto.EmployeeResponse;
+import com.afs.restapi.repository.EmployeeJpaRepository;
+import com.afs.restapi.service.CompanyEmployeesService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.mockito.Mockito.*;
+
+public class CompanyEmployeesServiceTest {
+    private CompanyEmployeesService companyEmployeesService;
+
+    private EmployeeJpaRepository mockedEmployeeRepository;
+
+    @BeforeEach
+    void setup() {
+        mockedEmployeeRepository = mock(EmployeeJpaRepository.class);
+        when(mockedEmployeeRepository.findResponsesByCompanyIdIn(List.of(1L)))
+                .thenReturn(List.of(new EmployeeResponse(1L, "Lily", 20, "Female", 8000, 1L, 0)));
+        when(mockedEmployeeRepository.findResponsesByCompanyIdIn(List.of(2L))).thenReturn(List.of());
+        // one id per chunk, so two companies go through the executor
+        companyEmployeesService = new CompanyEmployeesService(mockedEmployeeRepository, new ObjectMapper(), 1, 1, 1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        companyEmployeesService.shutdown();
+    }
+
+    @Test
+    void should_write_employees_grouped_by_company_when_write_given_chunked_company_ids() throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        companyEmployeesService.writeEmployeesByCompanyIds(List.of(1L, 2L), outputStream);
+
+        assertThat(new ObjectMapper().readTree(outputStream.toByteArray()).get("1").get(0).get("name").asText())
+                .isEqualTo("Lily");
+        assertThat(new ObjectMapper().readTree(outputStream.toByteArray()).get("2")).isEmpty();
+    }
+
+    @Test
+    void should_fail_instead_of_waiting_forever_when_write_given_executor_shut_down() {
+        companyEmployeesService.shutdown();
+
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () ->
+                assertThatThrownBy(() -> companyEmployeesService.writeEmployeesByCompanyIds(List.of(1L, 2L),
+                        new ByteArrayOutputStream()))
+                        .isInstanceOf(RejectedExecutionException.class));
+    }
+}
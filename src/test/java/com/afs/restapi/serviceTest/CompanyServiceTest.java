@@ -1,16 +1,26 @@
 package com.afs.restapi.serviceTest;
 
+import com.afs.restapi.dto.ChangeEvent;
+import com.afs.restapi.dto.CompanyResponse;
+import com.afs.restapi.dto.CompanySummary;
+import com.afs.restapi.dto.EmployeeResponse;
+import com.afs.restapi.dto.EmployeeSalary;
 import com.afs.restapi.entity.Company;
 import com.afs.restapi.entity.Employee;
 import com.afs.restapi.exception.CompanyNotFoundException;
 import com.afs.restapi.repository.CompanyJpaRepository;
 import com.afs.restapi.repository.EmployeeJpaRepository;
 import com.afs.restapi.service.CompanyService;
+import com.afs.restapi.service.ChangeEventService;
+import com.afs.restapi.service.CompanyTotalsService;
+import com.afs.restapi.service.EmployeeSnapshot;
+import com.afs.restapi.service.MissingIdCaches;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -27,11 +37,21 @@ public class CompanyServiceTest {
     private CompanyJpaRepository mockedCompanyRepository;
     private EmployeeJpaRepository mockedEmployeeRepository;
 
+    private SimpleMeterRegistry meterRegistry;
+    private ChangeEventService changeEventService;
+    private CompanyTotalsService companyTotalsService;
+
     @BeforeEach
     void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+        changeEventService = mock(ChangeEventService.class);
+        companyTotalsService = mock(CompanyTotalsService.class);
         mockedCompanyRepository = mock(CompanyJpaRepository.class);
         mockedEmployeeRepository = mock(EmployeeJpaRepository.class);
-        companyService = new CompanyService(mockedCompanyRepository, mockedEmployeeRepository);
+        companyService = new CompanyService(mockedCompanyRepository, mockedEmployeeRepository,
+                new MissingIdCaches(new ConcurrentMapCacheManager()),
+                new EmployeeSnapshot(false, mockedEmployeeRepository, mock(PlatformTransactionManager.class)),
+                changeEventService, companyTotalsService, meterRegistry);
     }
 
     @Test
@@ -48,33 +68,40 @@ public class CompanyServiceTest {
 
     @Test
     void should_update_company_name_when_update_given_company() {
-        Company company = new Company(1L, "Brandname");
         Company updatedCompanyInfo = new Company (null, "BrandNameNew");
-        Company updatedCompany = new Company(company.getId(), updatedCompanyInfo.getName());
-
-        when(mockedCompanyRepository.findById(company.getId())).thenReturn(Optional.of(company));
-        when(mockedCompanyRepository.save(updatedCompany)).thenReturn(updatedCompany);
+        when(mockedCompanyRepository.updateName(1L, "BrandNameNew")).thenReturn(1);
 
-        companyService.update(company.getId(), updatedCompanyInfo);
+        companyService.update(1L, updatedCompanyInfo, null);
 
-        verify(mockedCompanyRepository).save(argThat(tempCompany -> {
-                assertEquals(updatedCompany.getId(), tempCompany.getId());
-                assertEquals(updatedCompany.getName(), tempCompany.getName());
-                return true;
-        }));
+        verify(mockedCompanyRepository).updateName(1L, "BrandNameNew");
+        verify(mockedCompanyRepository, never()).save(any());
     }
 
     @Test
-    void should_return_all_companies_when_findAll() {
-        List<Company> companies = new ArrayList<>();
-        companies.add(new Company(1L, "JAJAJA"));
-        companies.add(new Company(2L, "stuq"));
-        companies.add(new Company(3L, "woooo"));
-        when(mockedCompanyRepository.findAll()).thenReturn(companies);
+    void should_return_companyNotFoundException_when_update_given_nonexistent_company_id() {
+        Company updatedCompanyInfo = new Company (null, "BrandNameNew");
+        when(mockedCompanyRepository.updateName(100L, "BrandNameNew")).thenReturn(0);
 
-        List<Company> retrievedCompanies = companyService.findAll();
+        assertThatThrownBy(() -> companyService.update(100L, updatedCompanyInfo, null))
+                .isInstanceOf(CompanyNotFoundException.class);
+    }
 
-        assertThat(companies).hasSameElementsAs(retrievedCompanies);
+    @Test
+    void should_return_all_companies_with_their_employees_when_findAll() {
+        List<CompanySummary> companies = new ArrayList<>();
+        companies.add(new CompanySummary(1L, "JAJAJA", 0));
+        companies.add(new CompanySummary(2L, "stuq", 0));
+        EmployeeResponse employee = new EmployeeResponse(10L, "Ababa", 20, "Female", 10000, 1L, 0);
+        when(mockedCompanyRepository.findAllSummaries()).thenReturn(companies);
+        when(mockedEmployeeRepository.findAllResponsesWithCompany()).thenReturn(List.of(employee));
+
+        List<CompanyResponse> retrievedCompanies = companyService.findAll();
+
+        assertEquals(2, retrievedCompanies.size());
+        assertEquals(1L, retrievedCompanies.get(0).getId());
+        assertThat(retrievedCompanies.get(0).getEmployees()).containsExactly(employee);
+        assertEquals(2L, retrievedCompanies.get(1).getId());
+        assertThat(retrievedCompanies.get(1).getEmployees()).isEmpty();
     }
 
     @Test
@@ -98,36 +125,73 @@ public class CompanyServiceTest {
 
     @Test
     void should_return_list_of_companies_when_findByPage_given_pageSize_and_pageNumber() {
-        List<Company> companies = new ArrayList<>();
-        companies.add(new Company(1L, "JAJAJA"));
-        companies.add(new Company(2L, "stuq"));
-        companies.add(new Company(3L, "woooo"));
+        List<CompanySummary> companies = new ArrayList<>();
+        companies.add(new CompanySummary(1L, "JAJAJA", 0));
+        companies.add(new CompanySummary(2L, "stuq", 0));
+        companies.add(new CompanySummary(3L, "woooo", 0));
 
-        Page<Company> companyPage = new PageImpl<>(companies, PageRequest.of(0, 3), companies.size());
+        when(mockedCompanyRepository.findSummariesBy(PageRequest.of(0,3))).thenReturn(companies);
+        when(mockedEmployeeRepository.findResponsesByCompanyIdIn(List.of(1L, 2L, 3L))).thenReturn(List.of());
 
-        when(mockedCompanyRepository.findAll(PageRequest.of(0,3))).thenReturn(companyPage);
+        List<CompanyResponse> retrievedCompanies = companyService.findByPage(1,3);
 
-        List<Company> retrievedCompanies = companyService.findByPage(1,3);
-
-        assertThat(companies).hasSameElementsAs(retrievedCompanies);
+        assertThat(retrievedCompanies).extracting(CompanyResponse::getId).containsExactly(1L, 2L, 3L);
+        assertThat(retrievedCompanies).extracting(CompanyResponse::getName).containsExactly("JAJAJA", "stuq", "woooo");
     }
 
     @Test
     void should_return_list_of_employees_when_findEmployeesByCompanyId_given_company_id() {
         List<Employee> employees = new ArrayList<>();
         employees.add(new Employee(1L, "Ababa", 20, "Female", 10000));
-        employees.add(new Employee(1L, "Brrr", 54, "Male", 2000));
-        employees.add(new Employee(1L, "Cheess", 35, "Male", 18000));
-        when(mockedEmployeeRepository.findAllByCompanyId(1L)).thenReturn(employees);
+        employees.add(new Employee(2L, "Brrr", 54, "Male", 2000));
+        employees.add(new Employee(3L, "Cheess", 35, "Male", 18000));
+        employees.forEach(employee -> employee.setCompanyId(1L));
+        when(mockedEmployeeRepository.findAllByCompanyIdOrderByIdAsc(1L)).thenReturn(employees);
 
-        List<Employee> retrievedEmployees = companyService.findEmployeesByCompanyId(1L);
+        List<EmployeeResponse> retrievedEmployees = companyService.findEmployeesByCompanyId(1L);
 
-        assertThat(employees).hasSameElementsAs(retrievedEmployees);
+        assertThat(retrievedEmployees).extracting(EmployeeResponse::getId).containsExactly(1L, 2L, 3L);
+        assertThat(retrievedEmployees).extracting(EmployeeResponse::getName).containsExactly("Ababa", "Brrr", "Cheess");
+        assertThat(retrievedEmployees).extracting(EmployeeResponse::getCompanyId).containsOnly(1L);
     }
 
     @Test
-    void should_delete_company_when_delete_given_company_id() {
+    void should_delete_company_and_its_employees_when_delete_given_company_id() {
+        when(companyTotalsService.lockEmployeesByCompanyId(1L))
+                .thenReturn(List.of(new EmployeeSalary(3L, 1L, 8000), new EmployeeSalary(4L, 1L, null)));
+        when(mockedCompanyRepository.bulkDeleteById(1L)).thenReturn(1);
+
         companyService.delete(1L);
-        verify(mockedCompanyRepository).deleteById(1L);
+
+        verify(mockedEmployeeRepository).bulkDeleteByCompanyId(1L);
+        verify(mockedCompanyRepository).bulkDeleteById(1L);
+        verify(mockedCompanyRepository, never()).findById(any());
+        verify(changeEventService).publish(ChangeEvent.EntityType.EMPLOYEE, ChangeEvent.Operation.DELETED, List.of(3L, 4L));
+        verify(changeEventService).publish(ChangeEvent.EntityType.COMPANY, ChangeEvent.Operation.DELETED, List.of(1L));
+    }
+
+    @Test
+    void should_throw_not_found_when_delete_given_nonexistent_company_id() {
+        when(mockedCompanyRepository.bulkDeleteById(100L)).thenReturn(0);
+
+        assertThatThrownBy(() -> companyService.delete(100L))
+                .isInstanceOf(CompanyNotFoundException.class);
+    }
+
+    @Test
+    void should_run_one_query_for_a_burst_of_identical_reads_when_findEmployeesByCompanyId_given_same_id() throws Exception {
+        Employee employee = new Employee(1L, "Lily", 20, "Female", 8000);
+        employee.setCompanyId(1L);
+        SingleFlightBurst burst = new SingleFlightBurst(meterRegistry, "company.employees");
+        when(mockedEmployeeRepository.findAllByCompanyIdOrderByIdAsc(1L)).thenAnswer(invocation -> {
+            burst.holdQuery();
+            return List.of(employee);
+        });
+
+        List<List<EmployeeResponse>> results = burst.run(8, () -> companyService.findEmployeesByCompanyId(1L));
+
+        assertThat(results).allSatisfy(result -> assertThat(result).extracting(EmployeeResponse::getId).containsExactly(1L));
+        assertThat(burst.getQueries()).isEqualTo(1);
+        assertThat(burst.getSharedCalls()).isEqualTo(7);
     }
 }
@@ -1,17 +1,32 @@
 package com.afs.restapi.serviceTest;
 
+import com.afs.restapi.config.CacheNames;
+import com.afs.restapi.dto.ChangeEvent;
+import com.afs.restapi.dto.DeleteResult;
+import com.afs.restapi.dto.EmployeeResponse;
+import com.afs.restapi.dto.EmployeeSalary;
 import com.afs.restapi.entity.Employee;
 import com.afs.restapi.exception.EmployeeNotFoundException;
+import com.afs.restapi.exception.PreconditionFailedException;
 import com.afs.restapi.repository.EmployeeJpaRepository;
 import com.afs.restapi.service.EmployeeService;
+import com.afs.restapi.service.ChangeEventService;
+import com.afs.restapi.service.CompanyTotalsService;
+import com.afs.restapi.service.EmployeeSnapshot;
+import com.afs.restapi.service.MissingIdCaches;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -25,10 +40,23 @@ public class EmployeeServiceTests {
 
     private EmployeeJpaRepository mockedEmployeeRepository;
 
+    private SimpleMeterRegistry meterRegistry;
+    private ChangeEventService changeEventService;
+    private CompanyTotalsService companyTotalsService;
+    private MissingIdCaches missingIdCaches;
+    private ConcurrentMapCacheManager cacheManager;
+
     @BeforeEach
     void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+        changeEventService = mock(ChangeEventService.class);
+        companyTotalsService = mock(CompanyTotalsService.class);
         mockedEmployeeRepository = mock(EmployeeJpaRepository.class);
-        employeeService = new EmployeeService(mockedEmployeeRepository);
+        cacheManager = new ConcurrentMapCacheManager();
+        missingIdCaches = new MissingIdCaches(cacheManager);
+        employeeService = new EmployeeService(mockedEmployeeRepository, cacheManager, missingIdCaches,
+                new EmployeeSnapshot(false, mockedEmployeeRepository, mock(PlatformTransactionManager.class)),
+                changeEventService, companyTotalsService, meterRegistry);
     }
 
     @Test
@@ -45,37 +73,49 @@ public class EmployeeServiceTests {
         assertEquals(savedEmployee.getGender(), createdEmployee.getGender());
         assertEquals(savedEmployee.getSalary(), createdEmployee.getSalary());
         assertEquals(savedEmployee.getCompanyId(), createdEmployee.getCompanyId());
+        verify(changeEventService).publish(ChangeEvent.EntityType.EMPLOYEE, ChangeEvent.Operation.CREATED, List.of(1L));
+        verify(companyTotalsService).recordCreated(List.of(savedEmployee));
     }
 
     @Test
     void should_update_age_and_salary_of_employee_when_update_given_employee_and_updated_employee_info() {
-        Employee employee = new Employee(1L, "Delilah", 50, "Female", 10000);
         Employee updatedEmployeeInfo = new Employee(null, "Namee", 51, "Female", 11000);
-        Employee updatedEmployee = new Employee(employee.getId(),employee.getName(),updatedEmployeeInfo.getAge(),employee.getGender(), updatedEmployeeInfo.getSalary());
+        when(mockedEmployeeRepository.updateAgeAndSalary(1L, 51, 11000)).thenReturn(1);
 
-        when(mockedEmployeeRepository.findById(employee.getId())).thenReturn(Optional.of(employee));
+        employeeService.update(1L, updatedEmployeeInfo, null);
 
-        employeeService.update(employee.getId(), updatedEmployeeInfo);
+        verify(mockedEmployeeRepository).updateAgeAndSalary(1L, 51, 11000);
+        verify(mockedEmployeeRepository, never()).save(any());
+    }
 
-        verify(mockedEmployeeRepository).save(argThat(tempEmployee -> {
-                assertEquals(updatedEmployee.getId(), tempEmployee.getId());
-                assertEquals(updatedEmployee.getName(), tempEmployee.getName());
-                assertEquals(updatedEmployee.getAge(), tempEmployee.getAge());
-                assertEquals(updatedEmployee.getGender(), tempEmployee.getGender());
-                assertEquals(updatedEmployee.getSalary(), tempEmployee.getSalary());
-                return true;
-        }));
+    @Test
+    void should_return_employeeNotFoundException_when_update_given_nonexistent_id() {
+        Employee updatedEmployeeInfo = new Employee(null, "Namee", 51, "Female", 11000);
+        when(mockedEmployeeRepository.updateAgeAndSalary(100L, 51, 11000)).thenReturn(0);
+
+        assertThatThrownBy(() -> employeeService.update(100L, updatedEmployeeInfo, null))
+                .isInstanceOf(EmployeeNotFoundException.class);
+    }
+
+    @Test
+    void should_return_preconditionFailedException_when_update_given_stale_version() {
+        Employee updatedEmployeeInfo = new Employee(null, "Namee", 51, "Female", 11000);
+        when(mockedEmployeeRepository.updateAgeAndSalary(1L, 3L, 51, 11000)).thenReturn(0);
+        when(mockedEmployeeRepository.existsById(1L)).thenReturn(true);
+
+        assertThatThrownBy(() -> employeeService.update(1L, updatedEmployeeInfo, 3L))
+                .isInstanceOf(PreconditionFailedException.class);
     }
 
     @Test
     void should_return_all_employees_when_findAll() {
-        List<Employee> employees = new ArrayList<>();
-        employees.add(new Employee(1L, "Ababa", 20, "Female", 10000));
-        employees.add(new Employee(2L, "Brrr", 54, "Male", 2000));
-        employees.add(new Employee(3L, "Cheess", 35, "Male", 18000));
-        when(mockedEmployeeRepository.findAll()).thenReturn(employees);
+        List<EmployeeResponse> employees = new ArrayList<>();
+        employees.add(new EmployeeResponse(1L, "Ababa", 20, "Female", 10000, null, 0));
+        employees.add(new EmployeeResponse(2L, "Brrr", 54, "Male", 2000, null, 0));
+        employees.add(new EmployeeResponse(3L, "Cheess", 35, "Male", 18000, null, 0));
+        when(mockedEmployeeRepository.findAllResponses()).thenReturn(employees);
 
-        List<Employee> retrievedEmployees = employeeService.findAll();
+        List<EmployeeResponse> retrievedEmployees = employeeService.findAll();
 
         assertThat(employees).hasSameElementsAs(retrievedEmployees);
     }
@@ -118,23 +158,105 @@ public class EmployeeServiceTests {
 
     @Test
     void should_return_list_of_employees_when_findByPage_given_pageSize_and_pageNumber() {
-        List<Employee> employees = new ArrayList<>();
-        employees.add(new Employee(1L, "Ababa", 20, "Female", 10000));
-        employees.add(new Employee(2L, "Brrr", 54, "Male", 2000));
-        employees.add(new Employee(3L, "Cheess", 35, "Male", 18000));
-
-        Page<Employee> employeePage = new PageImpl<>(employees, PageRequest.of(0, 3), employees.size());
+        List<EmployeeResponse> employees = new ArrayList<>();
+        employees.add(new EmployeeResponse(1L, "Ababa", 20, "Female", 10000, null, 0));
+        employees.add(new EmployeeResponse(2L, "Brrr", 54, "Male", 2000, null, 0));
+        employees.add(new EmployeeResponse(3L, "Cheess", 35, "Male", 18000, null, 0));
 
-        when(mockedEmployeeRepository.findAll(PageRequest.of(0, 3))).thenReturn(employeePage);
+        when(mockedEmployeeRepository.findResponsesBy(PageRequest.of(0, 3))).thenReturn(employees);
 
-        List<Employee> retrievedEmployees = employeeService.findByPage(1, 3);
+        List<EmployeeResponse> retrievedEmployees = employeeService.findByPage(1, 3);
 
         assertThat(employees).hasSameElementsAs(retrievedEmployees);
     }
 
+    @Test
+    void should_skip_repository_when_findById_given_id_that_was_just_missing() {
+        long nonexistentId = 100L;
+        when(mockedEmployeeRepository.findById(nonexistentId)).thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> employeeService.findById(nonexistentId))
+                .isInstanceOf(EmployeeNotFoundException.class);
+        assertThatThrownBy(() -> employeeService.findById(nonexistentId))
+                .isInstanceOf(EmployeeNotFoundException.class);
+        verify(mockedEmployeeRepository, times(1)).findById(nonexistentId);
+    }
+
+    @Test
+    void should_not_remember_miss_when_findById_given_create_committed_during_lookup() {
+        long newId = 100L;
+        when(mockedEmployeeRepository.findById(newId)).thenAnswer(invocation -> {
+            // the insert commits after this select missed it but before the miss is remembered
+            missingIdCaches.clearAfterCommit(CacheNames.MISSING_EMPLOYEES);
+            return Optional.empty();
+        });
+
+        assertThatThrownBy(() -> employeeService.findById(newId))
+                .isInstanceOf(EmployeeNotFoundException.class);
+
+        assertThat(missingIdCaches.isKnownMissing(CacheNames.MISSING_EMPLOYEES, newId)).isFalse();
+    }
+
+    @Test
+    void should_evict_cached_employee_after_commit_when_updateAll_given_updates() {
+        Cache cachedEmployees = cacheManager.getCache(CacheNames.EMPLOYEES);
+        cachedEmployees.put(1L, new Employee(1L, "Lily", 20, "Female", 8000));
+        when(mockedEmployeeRepository.updateAgeAndSalary(1L, 21, null)).thenReturn(1);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            employeeService.updateAll(Map.of(1L, new Employee(1L, null, 21, null, null)));
+
+            assertThat(cachedEmployees.get(1L)).isNotNull();
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        assertThat(cachedEmployees.get(1L)).isNull();
+    }
+
     @Test
     void should_delete_employee_when_delete_given_employee_id() {
+        when(mockedEmployeeRepository.bulkDeleteById(1L)).thenReturn(1);
+
         employeeService.delete(1L);
-        verify(mockedEmployeeRepository).deleteById(1L);
+
+        verify(mockedEmployeeRepository).bulkDeleteById(1L);
+        verify(mockedEmployeeRepository, never()).findById(any());
+    }
+
+    @Test
+    void should_throw_not_found_when_delete_given_nonexistent_employee_id() {
+        when(mockedEmployeeRepository.bulkDeleteById(100L)).thenReturn(0);
+
+        assertThatThrownBy(() -> employeeService.delete(100L))
+                .isInstanceOf(EmployeeNotFoundException.class);
+    }
+
+    @Test
+    void should_publish_only_deleted_ids_when_deleteAll_given_some_unknown_ids() {
+        when(companyTotalsService.lockEmployees(List.of(1L, 99L))).thenReturn(List.of(new EmployeeSalary(1L, 1L, 8000)));
+        when(mockedEmployeeRepository.bulkDeleteByIdIn(List.of(1L, 99L))).thenReturn(1);
+
+        DeleteResult result = employeeService.deleteAll(List.of(1L, 99L, 1L));
+
+        assertEquals(1, result.getDeleted());
+        verify(changeEventService).publish(ChangeEvent.EntityType.EMPLOYEE, ChangeEvent.Operation.DELETED, List.of(1L));
+    }
+
+    @Test
+    void should_run_one_query_for_a_burst_of_identical_reads_when_findById_given_same_id() throws Exception {
+        Employee employee = new Employee(1L, "Lily", 20, "Female", 8000);
+        SingleFlightBurst burst = new SingleFlightBurst(meterRegistry, "employee");
+        when(mockedEmployeeRepository.findById(1L)).thenAnswer(invocation -> {
+            burst.holdQuery();
+            return Optional.of(employee);
+        });
+
+        List<Employee> results = burst.run(8, () -> employeeService.findById(1L));
+
+        assertThat(results).allSatisfy(result -> assertThat(result).isSameAs(employee));
+        assertThat(burst.getQueries()).isEqualTo(1);
+        assertThat(burst.getSharedCalls()).isEqualTo(7);
     }
 }
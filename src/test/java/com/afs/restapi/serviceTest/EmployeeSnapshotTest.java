@@ -0,0 +1,146 @@
+package com.afs.restapi.serviceTest;
+
+import com.afs.restapi.dto.EmployeeFilter;
+import com.afs.restapi.dto.EmployeeResponse;
+import com.afs.restapi.entity.Employee;
+import com.afs.restapi.repository.EmployeeJpaRepository;
+import com.afs.restapi.service.EmployeeSnapshot;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+public class EmployeeSnapshotTest {
+    private EmployeeSnapshot employeeSnapshot;
+
+    private EmployeeJpaRepository mockedEmployeeRepository;
+
+    @BeforeEach
+    void setup() {
+        mockedEmployeeRepository = mock(EmployeeJpaRepository.class);
+        when(mockedEmployeeRepository.streamAllResponses()).thenAnswer(invocation -> Stream.of(
+                new EmployeeResponse(1L, "Lily", 20, "Female", 8000, 1L, 0),
+                new EmployeeResponse(2L, "Tom", 35, "Male", 9000, 1L, 2),
+                new EmployeeResponse(3L, "Anna", null, "female", 7000, 2L, 0),
+                new EmployeeResponse(4L, "Ben", 41, null, null, null, 0)));
+        employeeSnapshot = new EmployeeSnapshot(true, mockedEmployeeRepository, mock(PlatformTransactionManager.class));
+    }
+
+    @AfterEach
+    void tearDown() {
+        employeeSnapshot.close();
+    }
+
+    @Test
+    void should_answer_nothing_until_loaded_when_find_given_enabled_snapshot() {
+        assertThat(employeeSnapshot.find(new EmployeeFilter())).isEmpty();
+
+        assertThat(employeeSnapshot.rebuild()).isTrue();
+
+        assertThat(ids(employeeSnapshot.find(new EmployeeFilter()).orElseThrow())).containsExactly(1L, 2L, 3L, 4L);
+    }
+
+    @Test
+    void should_filter_like_the_database_when_find_given_loaded_snapshot() {
+        employeeSnapshot.rebuild();
+        EmployeeFilter femaleFilter = new EmployeeFilter();
+        femaleFilter.setGender("FEMALE");
+        EmployeeFilter ageFilter = new EmployeeFilter();
+        ageFilter.setMaxAge(40);
+
+        assertThat(ids(employeeSnapshot.find(femaleFilter).orElseThrow())).containsExactly(1L, 3L);
+        // a null age matches no range
+        assertThat(ids(employeeSnapshot.find(ageFilter).orElseThrow())).containsExactly(1L, 2L);
+        EmployeeResponse tom = employeeSnapshot.findByCompanyId(1L).orElseThrow().get(1);
+        assertThat(tom.getName()).isEqualTo("Tom");
+        assertThat(tom.getSalary()).isEqualTo(9000);
+        assertThat(tom.getVersion()).isEqualTo(2);
+        verify(mockedEmployeeRepository, never()).findAllResponses();
+    }
+
+    @Test
+    void should_apply_recorded_writes_when_find_given_loaded_snapshot() {
+        employeeSnapshot.rebuild();
+        Employee created = new Employee(5L, "Zoe", 28, "Female", 6000);
+        created.setCompanyId(2L);
+
+        employeeSnapshot.recordCreated(created);
+        employeeSnapshot.recordUpdated(1L, null, 8800);
+        employeeSnapshot.recordDeleted(List.of(2L));
+
+        List<EmployeeResponse> companyOne = employeeSnapshot.findByCompanyId(1L).orElseThrow();
+        assertThat(ids(companyOne)).containsExactly(1L);
+        assertThat(companyOne.get(0).getAge()).isEqualTo(20);
+        assertThat(companyOne.get(0).getSalary()).isEqualTo(8800);
+        assertThat(companyOne.get(0).getVersion()).isEqualTo(1);
+        assertThat(ids(employeeSnapshot.findByCompanyId(2L).orElseThrow())).containsExactly(3L, 5L);
+
+        employeeSnapshot.recordCompanyDeleted(2L);
+
+        assertThat(ids(employeeSnapshot.find(new EmployeeFilter()).orElseThrow())).containsExactly(1L, 4L);
+    }
+
+    @Test
+    void should_stop_answering_when_a_write_cannot_be_applied() {
+        employeeSnapshot.rebuild();
+
+        employeeSnapshot.recordUpdated(99L, 30, null);
+
+        assertThat(employeeSnapshot.find(new EmployeeFilter())).isEmpty();
+    }
+
+    @Test
+    void should_stop_answering_until_rebuilt_when_invalidate() {
+        employeeSnapshot.rebuild();
+
+        employeeSnapshot.invalidate();
+        assertThat(employeeSnapshot.find(new EmployeeFilter())).isEmpty();
+
+        assertThat(employeeSnapshot.rebuild()).isTrue();
+        assertThat(employeeSnapshot.find(new EmployeeFilter())).isPresent();
+    }
+
+    @Test
+    void should_go_to_the_database_from_the_batch_until_rebuilt_when_record_batch_created() {
+        employeeSnapshot.rebuild();
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            employeeSnapshot.recordBatchCreated();
+            // the inserted rows are not committed yet, but the snapshot no longer answers
+            assertThat(employeeSnapshot.find(new EmployeeFilter())).isEmpty();
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        assertThat(employeeSnapshot.find(new EmployeeFilter())).isEmpty();
+
+        assertThat(employeeSnapshot.rebuild()).isTrue();
+        assertThat(employeeSnapshot.find(new EmployeeFilter())).isPresent();
+    }
+
+    @Test
+    void should_leave_name_prefix_filters_to_the_database_when_find() {
+        employeeSnapshot.rebuild();
+        EmployeeFilter filter = new EmployeeFilter();
+        filter.setNamePrefix("L");
+
+        assertThat(employeeSnapshot.find(filter)).isEmpty();
+    }
+
+    private static List<Long> ids(List<EmployeeResponse> employees) {
+        return employees.stream()
+                .map(EmployeeResponse::getId)
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,68 @@
+package com.afs.restapi.serviceTest;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fires a burst of identical reads at a service. The mocked query calls {@link #holdQuery()}. It is held
+ * until every other caller has joined it, as counted by {@code single.flight.calls{result="shared"}}.
+ */
+final class SingleFlightBurst {
+    private static final long TIMEOUT_SECONDS = 5;
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final AtomicInteger queries = new AtomicInteger();
+    private final Counter shared;
+
+    SingleFlightBurst(MeterRegistry meterRegistry, String name) {
+        this.shared = meterRegistry.get("single.flight.calls")
+                .tag("name", name)
+                .tag("result", "shared")
+                .counter();
+    }
+
+    void holdQuery() throws InterruptedException {
+        queries.incrementAndGet();
+        release.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    <T> List<T> run(int callers, Callable<T> read) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        try {
+            List<Future<T>> futures = new ArrayList<>(callers);
+            for (int i = 0; i < callers; i++) {
+                futures.add(executor.submit(read));
+            }
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+            while (shared.count() < callers - 1 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            release.countDown();
+            List<T> results = new ArrayList<>(callers);
+            for (Future<T> future : futures) {
+                results.add(future.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    int getQueries() {
+        return queries.get();
+    }
+
+    double getSharedCalls() {
+        return shared.count();
+    }
+}